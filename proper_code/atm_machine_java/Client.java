@@ -1,9 +1,111 @@
+import enums.Denomination;
+import models.Receipt;
+import models.SettlementReport;
+import repository.AccountDao;
+import repository.CardDao;
+import repository.CashDao;
+import repository.CashJournal;
+import services.AtmFleet;
 import services.AtmMachineService;
+import services.AtmSessionMachine;
+import services.CardAuthService;
+import services.SettlementService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public class Client {
-    static void main() {
+    static void main() throws IOException {
+        Map<Denomination, Integer> cash = Map.of(
+                Denomination.HUNDRED, 50,
+                Denomination.TWO_HUNDRED, 50,
+                Denomination.FIVE_HUNDRED, 20,
+                Denomination.TWO_THOUSAND, 10);
+
+        try (AtmFleet fleet = new AtmFleet()) {
+            for (int i = 0; i < 3; i++) {
+                fleet.register("ATM" + i, cash, notes -> true);
+            }
+
+            List<CompletableFuture<Receipt>> sessions = new ArrayList<>();
+            int[] amounts = {600, 2700, 100, 4000, 1500, 800};
+            for (int i = 0; i < amounts.length; i++) {
+                int amount = amounts[i];
+                sessions.add(fleet.startSession("ATM" + (i % 3), atm -> atm.withdraw(amount)));
+            }
+            for (int i = 0; i < sessions.size(); i++) {
+                System.out.println("Withdraw " + amounts[i] + " at ATM" + (i % 3) + " -> " + sessions.get(i).join());
+            }
+
+            for (AtmMachineService atm : fleet.getAtms()) {
+                System.out.println(atm.getAtmId() + " sessions: " + atm.getSessionsServed()
+                        + ", dispensed: " + atm.getDispensedAmount()
+                        + ", cash: " + atm.getCashDao().getSnapshot().getAvailableNotes());
+            }
+
+            SettlementReport report = new SettlementService().settle(fleet);
+            System.out.println("Settlement: " + report);
+        }
+
+        // Journaled ATMs share one journal, so concurrent withdrawals share its forces,
+        // and survive a restart: replay rebuilds the same balances
+        Path journalDirectory = Files.createTempDirectory("atm-journal");
+        try (CashJournal journal = CashJournal.open(journalDirectory); AtmFleet fleet = new AtmFleet()) {
+            List<CompletableFuture<Receipt>> sessions = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String atmId = "ATM-J" + i;
+                fleet.register(atmId, new CashDao(atmId, cash, journal), notes -> true);
+                sessions.add(fleet.startSession(atmId, atm -> atm.withdraw(2300)));
+            }
+            sessions.forEach(session -> System.out.println("Journaled " + session.join()));
+            System.out.println("Before restart: " + fleet.getAtm("ATM-J0").getCashDao().getSnapshot().getAvailableNotes()
+                    + ", " + journal.getRecordCount() + " records in " + journal.getSyncCount() + " forces");
+            System.out.println("Journaled settlement: " + new SettlementService().settle(fleet));
+        }
+        try (CashJournal journal = CashJournal.open(journalDirectory)) {
+            Map<String, CashDao> recovered = CashDao.recoverAll(journal);
+            System.out.println("After recovery: " + recovered.get("ATM-J0").getSnapshot().getAvailableNotes()
+                    + " from " + journal.readAll("ATM-J0").size() + " records, " + recovered.size() + " ATMs");
+        } finally {
+            try (Stream<Path> files = Files.list(journalDirectory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(journalDirectory);
+        }
+
+        // Cards and accounts are keyed by 16-digit PAN / account number
+        CardDao cardDao = new CardDao(1_000);
+        AccountDao accountDao = new AccountDao(1_000);
+        long pan = 4111_1111_1111_1111L;
+        accountDao.addAccount(90_001L, 10_000);
+        cardDao.addCard(pan, 123, 90_001L, "4321");
+        CardAuthService cardAuthService = new CardAuthService(cardDao);
+        System.out.println("PIN 1111: " + cardAuthService.authenticate(pan, "1111"));
+        System.out.println("PIN 4321: " + cardAuthService.authenticate(pan, "4321"));
+        System.out.println("PIN 4321 again: " + cardAuthService.authenticate(pan, "4321")
+                + " (cache hits: " + cardAuthService.getCacheHits() + ")");
+        System.out.println("Debit 2300: " + accountDao.debit(cardDao.getAccountNumber(pan), 2300)
+                + ", balance " + accountDao.getBalance(cardDao.getAccountNumber(pan)));
 
-        AtmMachineService atmMachineService = AtmMachineService.getInstance();
+        // A full customer session through the state machine
+        try (AtmSessionMachine sessions = new AtmSessionMachine(100_000, cardDao, accountDao, cardAuthService)) {
+            sessions.startTimeoutSweeper(1_000);
+            AtmMachineService atm = new AtmMachineService("ATM-S", new CashDao(cash), notes -> true);
+            int session = sessions.openSession(atm);
+            System.out.println(sessions.getState(session) + " -> insert card: " + sessions.insertCard(session, pan));
+            System.out.println(sessions.getState(session) + " -> PIN: " + sessions.submitPin(session, "4321"));
+            System.out.println(sessions.getState(session) + " -> amount: " + sessions.submitAmount(session, 700));
+            System.out.println(sessions.getState(session) + " -> receipt: " + sessions.printReceipt(session));
+            System.out.println(sessions.getState(session));
+            sessions.closeSession(session);
+        }
     }
 }
-/** This atm machine java is incomplete. */
\ No newline at end of file
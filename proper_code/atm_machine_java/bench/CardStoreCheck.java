@@ -0,0 +1,111 @@
+package bench;
+
+import constants.AtmConstants;
+import repository.AccountDao;
+import repository.CardDao;
+import util.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Self-checking run over the PAN- and account-keyed stores, focused on key 0, which LongIntHashMap
+ * uses to mark empty slots. A lookup of 0 must miss instead of landing on whichever record owns the
+ * first probed slot, and no store may accept 0 as a key. Account debits and credits must also refuse
+ * amounts that are not positive.
+ * Every failed check is printed and the process exits with status 1.
+ *
+ * Usage: java bench.CardStoreCheck
+ */
+public class CardStoreCheck {
+
+    private static final long PAN = 4111_1111_1111_1111L;
+    private static final long ACCOUNT = 90_001L;
+    private static final long BALANCE = 10_000;
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) {
+        checkMap();
+        checkCards();
+        checkAccounts();
+
+        if (!failures.isEmpty()) {
+            for (String failure : failures) {
+                System.out.println("FAILED: " + failure);
+            }
+            System.exit(1);
+        }
+        System.out.println("All card store checks passed");
+    }
+
+    private static void checkMap() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (long key = 1; key <= 10; key++) {
+            map.put(key, (int) key);
+        }
+        check(map.get(0) == LongIntHashMap.MISSING, "get(0) returned " + map.get(0));
+        check(!map.containsKey(0), "containsKey(0) is true");
+        check(map.remove(0) == LongIntHashMap.MISSING && map.size() == 10, "remove(0) changed the map");
+        check(throwsIllegalArgument(() -> map.put(0, 1)), "put(0) was accepted");
+        for (long key = 1; key <= 10; key++) {
+            check(map.get(key) == key, "get(" + key + ") returned " + map.get(key));
+        }
+    }
+
+    private static void checkCards() {
+        CardDao cardDao = new CardDao(16);
+        cardDao.addCard(PAN, 123, ACCOUNT, "4321");
+
+        check(cardDao.getCard(0) == null, "getCard(0) returned a card");
+        check(cardDao.getAccountNumber(0) == -1, "getAccountNumber(0) returned " + cardDao.getAccountNumber(0));
+        check(!cardDao.containsCard(0), "containsCard(0) is true");
+        check(!cardDao.verifyPin(0, "4321"), "verifyPin(0) accepted the first card's PIN");
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < AtmConstants.MAX_FAILED_PIN_ATTEMPTS; i++) {
+            check(cardDao.recordPinFailure(0, now) == 0, "recordPinFailure(0) locked a card");
+        }
+        check(cardDao.getLockedUntil(PAN, now) == 0, "failures for PAN 0 locked " + CardDao.mask(PAN));
+
+        check(throwsIllegalArgument(() -> cardDao.addCard(0, 999, ACCOUNT, "0000")), "addCard(0) was accepted");
+        check(cardDao.size() == 1, "addCard(0) left size " + cardDao.size());
+        check(cardDao.verifyPin(PAN, "4321"), "the real card no longer verifies");
+    }
+
+    private static void checkAccounts() {
+        AccountDao accountDao = new AccountDao(16);
+        accountDao.addAccount(ACCOUNT, BALANCE);
+
+        check(!accountDao.containsAccount(0), "containsAccount(0) is true");
+        check(throwsIllegalArgument(() -> accountDao.debit(0, 2_000)), "debit(0) did not fail");
+        check(throwsIllegalArgument(() -> accountDao.getBalance(0)), "getBalance(0) did not fail");
+        check(throwsIllegalArgument(() -> accountDao.credit(0, 2_000)), "credit(0) did not fail");
+        check(accountDao.getBalance(ACCOUNT) == BALANCE, "account 0 operations moved the real balance to "
+                + accountDao.getBalance(ACCOUNT));
+
+        check(throwsIllegalArgument(() -> accountDao.debit(ACCOUNT, -2_000)), "debit(-2000) did not fail");
+        check(throwsIllegalArgument(() -> accountDao.debit(ACCOUNT, 0)), "debit of 0 did not fail");
+        check(throwsIllegalArgument(() -> accountDao.credit(ACCOUNT, -2_000)), "credit(-2000) did not fail");
+        check(accountDao.getBalance(ACCOUNT) == BALANCE, "non-positive amounts moved the balance to "
+                + accountDao.getBalance(ACCOUNT));
+
+        check(throwsIllegalArgument(() -> accountDao.addAccount(0, 1)), "addAccount(0) was accepted");
+        check(accountDao.size() == 1, "addAccount(0) left size " + accountDao.size());
+    }
+
+    private static boolean throwsIllegalArgument(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static void check(boolean condition, String failure) {
+        if (!condition) {
+            failures.add(failure);
+        }
+    }
+}
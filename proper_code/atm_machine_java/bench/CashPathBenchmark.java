@@ -0,0 +1,144 @@
+package bench;
+
+import enums.Denomination;
+import repository.CashDao;
+import repository.CashReservation;
+import services.DispensePlanner;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput benchmark for the CashDao operations, in the style of a JMH throughput run: for each
+ * operation and thread count it runs warmup iterations, then measured iterations of fixed length,
+ * and reports the mean and standard deviation of ops/s across iterations. Every thread works on
+ * the same CashDao, so the numbers include CAS contention. A WITHDRAW the planner declines still
+ * counts as an operation and is reported in the declined column (summed over measured iterations).
+ *
+ * Usage: java bench.CashPathBenchmark [threads,...] [iterations] [iterationMillis]
+ * e.g.   java bench.CashPathBenchmark 1,2,4,8 5 1000
+ */
+public class CashPathBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int NOTES_PER_DENOMINATION = Integer.MAX_VALUE / 2;
+
+    /** Results are written here so the JIT cannot treat the measured work as dead code. */
+    private static volatile long blackhole;
+
+    /** Withdrawals the planner declined in the current iteration. */
+    private static final LongAdder declined = new LongAdder();
+
+    private interface Operation {
+        /** Runs one operation and returns something derived from its result, for the blackhole. */
+        long run(CashDao cashDao, DispensePlanner planner, SplittableRandom random);
+    }
+
+    private enum Benchmark {
+        SNAPSHOT_READ((cashDao, planner, random) -> cashDao.getSnapshot().getVersion()),
+        BALANCE_FOR_DENO((cashDao, planner, random) ->
+                cashDao.getAvailableBalanceForDeno(Denomination.FIVE_HUNDRED)),
+        RESERVE_ROLLBACK((cashDao, planner, random) -> {
+            CashReservation reservation = cashDao.reserve(Map.of(Denomination.HUNDRED, 1, Denomination.FIVE_HUNDRED, 1));
+            cashDao.rollback(reservation);
+            return reservation.getReservationId();
+        }),
+        WITHDRAW((cashDao, planner, random) -> {
+            CashReservation reservation = planner.reserve(100 * (1 + random.nextInt(50)));
+            if (reservation == null) {
+                declined.increment();
+                return 0;
+            }
+            cashDao.commit(reservation);
+            return reservation.getReservationId();
+        });
+
+        private final Operation operation;
+
+        Benchmark(Operation operation) {
+            this.operation = operation;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = args.length > 0 ? CashStressHarness.parseInts(args[0]) : new int[]{1, 2, 4, 8};
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long iterationMillis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+        System.out.printf("%-18s %7s %14s %12s %10s%n",
+                "benchmark", "threads", "ops/s", "+/- stddev", "declined");
+        for (Benchmark benchmark : Benchmark.values()) {
+            for (int threads : threadCounts) {
+                double[] results = new double[iterations];
+                long declinedTotal = 0;
+                for (int i = 0; i < WARMUP_ITERATIONS + iterations; i++) {
+                    double opsPerSecond = iteration(benchmark, threads, iterationMillis);
+                    if (i >= WARMUP_ITERATIONS) {
+                        results[i - WARMUP_ITERATIONS] = opsPerSecond;
+                        declinedTotal += declined.sum();
+                    }
+                }
+                double mean = 0;
+                for (double result : results) {
+                    mean += result / iterations;
+                }
+                double variance = 0;
+                for (double result : results) {
+                    variance += (result - mean) * (result - mean) / iterations;
+                }
+                System.out.printf("%-18s %7d %14.0f %12.0f %10d%n", benchmark, threads, mean, Math.sqrt(variance),
+                        declinedTotal);
+            }
+        }
+    }
+
+    private static double iteration(Benchmark benchmark, int threads, long iterationMillis) throws Exception {
+        Map<Denomination, Integer> cash = new EnumMap<>(Denomination.class);
+        for (Denomination deno : Denomination.values()) {
+            cash.put(deno, NOTES_PER_DENOMINATION);
+        }
+        CashDao cashDao = new CashDao(cash);
+        DispensePlanner planner = new DispensePlanner(cashDao);
+
+        declined.reset();
+        LongAdder ops = new LongAdder();
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        long[] window = new long[1];
+        Thread[] runners = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            runners[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                long done = 0;
+                long consumed = 0;
+                try {
+                    start.await();
+                } catch (Exception e) {
+                    return;
+                }
+                long deadline = window[0];
+                while (System.nanoTime() < deadline) {
+                    // Check the clock every 64 operations so timing does not dominate cheap reads
+                    for (int k = 0; k < 64; k++) {
+                        consumed += benchmark.operation.run(cashDao, planner, random);
+                    }
+                    done += 64;
+                }
+                ops.add(done);
+                blackhole = consumed;
+            }, "cash-bench-" + t);
+            runners[t].start();
+        }
+        long began = System.nanoTime();
+        window[0] = began + iterationMillis * 1_000_000;
+        start.await();
+        for (Thread runner : runners) {
+            runner.join();
+        }
+        long elapsed = System.nanoTime() - began;
+        return ops.sum() * 1e9 / elapsed;
+    }
+}
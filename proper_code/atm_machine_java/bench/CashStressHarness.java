@@ -0,0 +1,234 @@
+package bench;
+
+import enums.Denomination;
+import models.CashSnapshot;
+import repository.CashDao;
+import repository.CashReservation;
+import services.DispensePlanner;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contention stress for the cash path (CashDao + DispensePlanner).
+ *
+ * For every combination of thread count, denomination mix and pool layout, worker threads run a
+ * randomized mix of snapshot reads, withdrawals (plan, reserve, commit) and faulted withdrawals
+ * (plan, reserve, rollback), timing each operation. Invariants are checked while running and after:
+ *   - every snapshot read has no negative count, and available + reserved + dispensed equals the
+ *     notes loaded, per denomination (a torn multi-denomination update would break this)
+ *   - at the end nothing is reserved, and the notes the workers were handed per denomination equal
+ *     the dispensed counts
+ * Any violation is printed and the process exits with status 1.
+ *
+ * Usage: java bench.CashStressHarness [opsPerConfig] [threads,...]
+ * e.g.   java bench.CashStressHarness 2000000 1,2,4,8,16
+ */
+public class CashStressHarness {
+
+    private static final int NOTES_PER_DENOMINATION = 50_000_000;
+    private static final int SPREAD_ATMS = 1024;
+    private static final int READ_PERCENT = 25;
+    private static final int FAULT_PERCENT = 10;
+
+    enum DenominationMix {
+        /** Every denomination loaded. */
+        ALL(Denomination.values()),
+        /** Only 200s and 500s, where greedy dispensing fails and the planner has real work. */
+        TWO_HUNDRED_AND_FIVE_HUNDRED(Denomination.TWO_HUNDRED, Denomination.FIVE_HUNDRED),
+        /** A single denomination: every withdrawal hits the same count. */
+        HUNDRED_ONLY(Denomination.HUNDRED);
+
+        private final Denomination[] loaded;
+
+        DenominationMix(Denomination... loaded) {
+            this.loaded = loaded;
+        }
+
+        Map<Denomination, Integer> cash() {
+            Map<Denomination, Integer> cash = new EnumMap<>(Denomination.class);
+            for (Denomination deno : loaded) {
+                cash.put(deno, NOTES_PER_DENOMINATION);
+            }
+            return cash;
+        }
+    }
+
+    enum PoolLayout {
+        /** All threads withdraw from one ATM. */
+        HOT_POOL,
+        /** Threads withdraw from SPREAD_ATMS ATMs picked at random. */
+        MANY_ATMS
+    }
+
+    private static final class Worker implements Runnable {
+        final CashDao[] cashDaos;
+        final DispensePlanner[] planners;
+        final long ops;
+        final SplittableRandom random;
+        final CountDownLatch start;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final long[][] dispensedNotes;
+        final List<String> violations = new ArrayList<>();
+        long declined;
+
+        Worker(CashDao[] cashDaos, DispensePlanner[] planners, long ops, long seed, CountDownLatch start) {
+            this.cashDaos = cashDaos;
+            this.planners = planners;
+            this.ops = ops;
+            this.random = new SplittableRandom(seed);
+            this.start = start;
+            this.dispensedNotes = new long[cashDaos.length][Denomination.values().length];
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (long op = 0; op < ops; op++) {
+                int atm = cashDaos.length == 1 ? 0 : random.nextInt(cashDaos.length);
+                int roll = random.nextInt(100);
+                int amount = 100 * (1 + random.nextInt(DispensePlanner.MAX_WITHDRAWAL_AMOUNT / 100 / 4));
+                long started = System.nanoTime();
+                if (roll < READ_PERCENT) {
+                    CashSnapshot snapshot = cashDaos[atm].getSnapshot();
+                    latency.record(System.nanoTime() - started);
+                    checkConserved(snapshot);
+                    continue;
+                }
+                CashReservation reservation = planners[atm].reserve(amount);
+                if (reservation == null) {
+                    latency.record(System.nanoTime() - started);
+                    declined++;
+                    continue;
+                }
+                if (roll < READ_PERCENT + FAULT_PERCENT) {
+                    cashDaos[atm].rollback(reservation);
+                } else {
+                    cashDaos[atm].commit(reservation);
+                    for (Denomination deno : Denomination.values()) {
+                        dispensedNotes[atm][deno.ordinal()] += reservation.getNotes(deno);
+                    }
+                }
+                latency.record(System.nanoTime() - started);
+            }
+        }
+
+        private void checkConserved(CashSnapshot snapshot) {
+            for (Denomination deno : Denomination.values()) {
+                long notes = (long) snapshot.getAvailable(deno) + snapshot.getReserved(deno) + snapshot.getDispensed(deno);
+                if (snapshot.hasNegativeCount() || (notes != 0 && notes != NOTES_PER_DENOMINATION)) {
+                    if (violations.size() < 10) {
+                        violations.add("Torn or negative snapshot " + snapshot);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long opsPerConfig = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int[] threadCounts = args.length > 1 ? parseInts(args[1]) : new int[]{1, 2, 4, 8, 16};
+
+        System.out.printf("%-30s %-10s %7s %12s %9s %9s %9s %9s %9s%n",
+                "mix", "layout", "threads", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us", "declined");
+        AtomicLong failures = new AtomicLong();
+        for (DenominationMix mix : DenominationMix.values()) {
+            for (PoolLayout layout : PoolLayout.values()) {
+                for (int threads : threadCounts) {
+                    failures.addAndGet(run(mix, layout, threads, opsPerConfig));
+                }
+            }
+        }
+        if (failures.get() > 0) {
+            System.out.println("FAILED: " + failures.get() + " invariant violations");
+            System.exit(1);
+        }
+        System.out.println("All invariants held");
+    }
+
+    /**
+     * @return Number of invariant violations
+     */
+    private static long run(DenominationMix mix, PoolLayout layout, int threads, long ops)
+            throws InterruptedException {
+        int atms = layout == PoolLayout.HOT_POOL ? 1 : SPREAD_ATMS;
+        CashDao[] cashDaos = new CashDao[atms];
+        DispensePlanner[] planners = new DispensePlanner[atms];
+        for (int i = 0; i < atms; i++) {
+            cashDaos[i] = new CashDao(mix.cash());
+            planners[i] = new DispensePlanner(cashDaos[i]);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        Worker[] workers = new Worker[threads];
+        Thread[] runners = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(cashDaos, planners, ops / threads, 31L * t + threads, start);
+            runners[t] = new Thread(workers[t], "cash-stress-" + t);
+            runners[t].start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread runner : runners) {
+            runner.join();
+        }
+        long elapsed = System.nanoTime() - began;
+
+        LatencyHistogram latency = new LatencyHistogram();
+        long declined = 0;
+        List<String> violations = new ArrayList<>();
+        long[][] handedOut = new long[atms][Denomination.values().length];
+        for (Worker worker : workers) {
+            latency.merge(worker.latency);
+            declined += worker.declined;
+            violations.addAll(worker.violations);
+            for (int atm = 0; atm < atms; atm++) {
+                for (int d = 0; d < handedOut[atm].length; d++) {
+                    handedOut[atm][d] += worker.dispensedNotes[atm][d];
+                }
+            }
+        }
+        for (int atm = 0; atm < atms; atm++) {
+            CashSnapshot snapshot = cashDaos[atm].getSnapshot();
+            for (Denomination deno : Denomination.values()) {
+                long loaded = mix.cash().getOrDefault(deno, 0);
+                if (snapshot.getReserved(deno) != 0
+                        || snapshot.getDispensed(deno) != handedOut[atm][deno.ordinal()]
+                        || snapshot.getAvailable(deno) + snapshot.getDispensed(deno) != loaded
+                        || snapshot.hasNegativeCount()) {
+                    violations.add("ATM " + atm + " " + deno + " does not balance: " + snapshot
+                            + ", handed out " + handedOut[atm][deno.ordinal()]);
+                }
+            }
+        }
+
+        System.out.printf("%-30s %-10s %7d %12.0f %9.1f %9.1f %9.1f %9.1f %9d%n",
+                mix, layout, threads, latency.getTotal() * 1e9 / elapsed,
+                latency.percentile(50) / 1e3, latency.percentile(99) / 1e3, latency.percentile(99.9) / 1e3,
+                latency.getMax() / 1e3, declined);
+        for (String violation : violations) {
+            System.out.println("  VIOLATION " + violation);
+        }
+        return violations.size();
+    }
+
+    static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,26 @@
+package constants;
+
+public class AtmConstants {
+
+    /** Settlement region for ATMs registered without one. */
+    public static final String DEFAULT_REGION = "DEFAULT";
+
+    /** Wrong PINs allowed inside PIN_LOCKOUT_WINDOW_MILLIS before the card is locked. */
+    public static final int MAX_FAILED_PIN_ATTEMPTS = 3;
+
+    /** Sliding window for counting wrong PINs; a locked card unlocks when its oldest failure leaves it. */
+    public static final long PIN_LOCKOUT_WINDOW_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /** How long a PIN verification result may be reused without asking the card store again. */
+    public static final long PIN_CACHE_TTL_MILLIS = 5 * 60 * 1000L;
+
+    /** Entries in the PIN verification cache; must be a power of two. */
+    public static final int PIN_CACHE_SIZE = 1 << 16;
+
+    /** PBKDF2 rounds for stored PIN hashes; deliberately slow so stolen hashes are hard to brute-force. */
+    public static final int PIN_HASH_ITERATIONS = 4096;
+
+    private AtmConstants() {
+        // Prevent instantiation
+    }
+}
@@ -0,0 +1,8 @@
+package enums;
+
+public enum AuthResult {
+    APPROVED,
+    WRONG_PIN,
+    LOCKED,
+    UNKNOWN_CARD
+}
@@ -1,9 +1,19 @@
 package enums;
 
 public enum  Denomination {
-    HUNDRED("HUNDRED"),
-    THOUSAND("THOUSAND");
+    HUNDRED(100),
+    TWO_HUNDRED(200),
+    FIVE_HUNDRED(500),
+    THOUSAND(1000),
+    TWO_THOUSAND(2000);
 
-    Denomination(String hundred) {
+    private final int value;
+
+    Denomination(int value) {
+        this.value = value;
+    }
+
+    public int getValue() {
+        return value;
     }
 }
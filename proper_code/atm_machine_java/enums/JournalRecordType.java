@@ -0,0 +1,42 @@
+package enums;
+
+public enum JournalRecordType {
+    LOAD(1),
+    RESERVE(2),
+    DISPENSE(3),
+    ROLLBACK(4),
+    /** Binds an ATM id to the tag its records carry; internal to CashJournal. */
+    ATTACH(5),
+    /**
+     * Opens a journal segment: the notes an ATM holds (available plus reserved), with the highest
+     * reservation id it has used. Its pending reservations follow as RESERVE records.
+     */
+    CHECKPOINT(6),
+    /** Completes a CHECKPOINT with the notes the ATM has dispensed so far. */
+    CHECKPOINT_DISPENSED(7);
+
+    private static final JournalRecordType[] BY_CODE = new JournalRecordType[8];
+
+    static {
+        for (JournalRecordType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    JournalRecordType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @return The type for an on-disk code, or null if the code is unknown
+     */
+    public static JournalRecordType fromCode(byte code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
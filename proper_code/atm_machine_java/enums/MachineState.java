@@ -0,0 +1,24 @@
+package enums;
+
+/**
+ * Steps of a customer session, with how long the ATM waits in each before giving up.
+ * A timeout of 0 means the state never times out.
+ */
+public enum MachineState {
+    READY(0),
+    CARD_INSERTED(10_000),
+    ENTER_ATM_PIN(30_000),
+    ENTER_AMOUNT_TO_WITHDRAW(30_000),
+    DISPATCH_CASH(0),
+    GENERATE_RECEIPT(15_000);
+
+    private final int timeoutMillis;
+
+    MachineState(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
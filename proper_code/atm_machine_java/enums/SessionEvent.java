@@ -0,0 +1,14 @@
+package enums;
+
+public enum SessionEvent {
+    INSERT_CARD,
+    CARD_ACCEPTED,
+    PIN_ACCEPTED,
+    PIN_REJECTED,
+    AMOUNT_ENTERED,
+    CASH_DISPENSED,
+    DISPENSE_FAILED,
+    RECEIPT_PRINTED,
+    CANCEL,
+    TIMEOUT
+}
@@ -0,0 +1,12 @@
+package enums;
+
+public enum SettlementIssue {
+    /** Notes counted as dispensed do not add up to the ATM's opening amount plus the receipts it issued. */
+    DISPENSED_MISMATCH,
+    /** The notes the journal records as dispensed disagree with the dispensed notes. */
+    JOURNAL_MISMATCH,
+    /** Notes are reserved beyond what the withdrawals at the dispenser hold, e.g. left in doubt by a crash. */
+    PENDING_RESERVATIONS,
+    /** A note count is below zero, which the cash path should make impossible. */
+    NEGATIVE_COUNT
+}
@@ -0,0 +1,18 @@
+package interfaces;
+
+import enums.Denomination;
+
+import java.util.Map;
+
+/**
+ * Hardware that physically hands notes to the customer.
+ */
+public interface ICashDispenser {
+    /**
+     * Dispenses the notes.
+     *
+     * @param notes Notes per denomination, already reserved in the ATM's CashDao
+     * @return true if every note left the machine, false on a hardware fault
+     */
+    boolean dispense(Map<Denomination, Integer> notes);
+}
@@ -0,0 +1,61 @@
+package models;
+
+import enums.SettlementIssue;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * One ATM's line in the end-of-day settlement.
+ */
+public final class AtmSettlement {
+    private final String atmId;
+    private final String region;
+    private final CashSnapshot snapshot;
+    private final long recordedDispensedAmount;
+    private final Set<SettlementIssue> issues;
+
+    public AtmSettlement(String atmId, String region, CashSnapshot snapshot, long recordedDispensedAmount,
+                         Set<SettlementIssue> issues) {
+        this.atmId = atmId;
+        this.region = region;
+        this.snapshot = snapshot;
+        this.recordedDispensedAmount = recordedDispensedAmount;
+        this.issues = Collections.unmodifiableSet(issues);
+    }
+
+    public String getAtmId() {
+        return atmId;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    /** The cash counts this line was settled against. */
+    public CashSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Amount paid out according to the record the snapshot was reconciled against: the journal's
+     * DISPENSE records for a journaled ATM, otherwise the opening amount plus the receipts issued.
+     */
+    public long getRecordedDispensedAmount() {
+        return recordedDispensedAmount;
+    }
+
+    public Set<SettlementIssue> getIssues() {
+        return issues;
+    }
+
+    public boolean isReconciled() {
+        return issues.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "AtmSettlement{" + atmId + "@" + region + ", version=" + snapshot.getVersion()
+                + ", recordedDispensed=" + recordedDispensedAmount + ", issues=" + issues + "}";
+    }
+}
@@ -1,10 +1,10 @@
 package models;
 
 public class Card {
-    private final int number;
+    private final long number;
     private final int cvv;
 
-    public int getNumber() {
+    public long getNumber() {
         return number;
     }
 
@@ -12,7 +12,7 @@ public class Card {
         return cvv;
     }
 
-    public Card(int number, int cvv) {
+    public Card(long number, int cvv) {
         this.number = number;
         this.cvv = cvv;
     }
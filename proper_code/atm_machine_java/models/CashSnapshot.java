@@ -0,0 +1,197 @@
+package models;
+
+import enums.Denomination;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of an ATM's note counts.
+ * Every change to the cash produces a new snapshot with a higher version, so a reader holding one
+ * snapshot always sees available, reserved and dispensed counts that belong together.
+ * Arrays are indexed by Denomination ordinal and never exposed.
+ *
+ * The restock epoch only moves when some available count goes up (reload or rollback). Between
+ * epochs counts only shrink, which lets callers keep derived results such as dispense plans.
+ */
+public final class CashSnapshot {
+    private static final int DENOMINATIONS = Denomination.values().length;
+
+    private final long version;
+    private final long restockEpoch;
+    private final int[] available;
+    private final int[] reserved;
+    private final int[] dispensed;
+
+    CashSnapshot(long version, long restockEpoch, int[] available, int[] reserved, int[] dispensed) {
+        this.version = version;
+        this.restockEpoch = restockEpoch;
+        this.available = available;
+        this.reserved = reserved;
+        this.dispensed = dispensed;
+    }
+
+    public static CashSnapshot initial(Map<Denomination, Integer> notes) {
+        return new CashSnapshot(0, 0, toCounts(notes), new int[DENOMINATIONS], new int[DENOMINATIONS]);
+    }
+
+    /**
+     * Snapshot rebuilt from a journal replay.
+     */
+    public static CashSnapshot restored(long version, int[] available, int[] reserved, int[] dispensed) {
+        return new CashSnapshot(version, 0, available.clone(), reserved.clone(), dispensed.clone());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getRestockEpoch() {
+        return restockEpoch;
+    }
+
+    /** Notes in the cassettes that no session has reserved. */
+    public int getAvailable(Denomination deno) {
+        return available[deno.ordinal()];
+    }
+
+    /** Notes set aside for in-flight withdrawals, not yet dispensed or rolled back. */
+    public int getReserved(Denomination deno) {
+        return reserved[deno.ordinal()];
+    }
+
+    /** Notes that have left the machine since the snapshot history began. */
+    public int getDispensed(Denomination deno) {
+        return dispensed[deno.ordinal()];
+    }
+
+    public Map<Denomination, Integer> getAvailableNotes() {
+        return toMap(available);
+    }
+
+    /** Face value of all available notes. */
+    public long getAvailableAmount() {
+        return amount(available);
+    }
+
+    /** Face value of all notes reserved for withdrawals in flight. */
+    public long getReservedAmount() {
+        return amount(reserved);
+    }
+
+    /** Face value of all notes dispensed. */
+    public long getDispensedAmount() {
+        return amount(dispensed);
+    }
+
+    private static long amount(int[] counts) {
+        long amount = 0;
+        for (Denomination deno : Denomination.values()) {
+            amount += (long) deno.getValue() * counts[deno.ordinal()];
+        }
+        return amount;
+    }
+
+    /** True if any count is below zero, which the reserve/commit/rollback protocol should rule out. */
+    public boolean hasNegativeCount() {
+        for (int i = 0; i < DENOMINATIONS; i++) {
+            if (available[i] < 0 || reserved[i] < 0 || dispensed[i] < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if every count in the plan is covered by the available notes
+     */
+    public boolean covers(Map<Denomination, Integer> notes) {
+        for (Map.Entry<Denomination, Integer> entry : notes.entrySet()) {
+            if (available[entry.getKey().ordinal()] < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a snapshot with the notes moved from available to reserved, or null if any count is short
+     */
+    public CashSnapshot reserve(int[] notes) {
+        int[] newAvailable = available.clone();
+        int[] newReserved = reserved.clone();
+        for (int i = 0; i < DENOMINATIONS; i++) {
+            if (notes[i] < 0 || newAvailable[i] < notes[i]) {
+                return null;
+            }
+            newAvailable[i] -= notes[i];
+            newReserved[i] += notes[i];
+        }
+        return new CashSnapshot(version + 1, restockEpoch, newAvailable, newReserved, dispensed);
+    }
+
+    /** Moves reserved notes to dispensed. */
+    public CashSnapshot commit(int[] notes) {
+        int[] newReserved = reserved.clone();
+        int[] newDispensed = dispensed.clone();
+        for (int i = 0; i < DENOMINATIONS; i++) {
+            newReserved[i] -= notes[i];
+            newDispensed[i] += notes[i];
+        }
+        return new CashSnapshot(version + 1, restockEpoch, available, newReserved, newDispensed);
+    }
+
+    /** Returns reserved notes to available. */
+    public CashSnapshot rollback(int[] notes) {
+        int[] newAvailable = available.clone();
+        int[] newReserved = reserved.clone();
+        for (int i = 0; i < DENOMINATIONS; i++) {
+            newAvailable[i] += notes[i];
+            newReserved[i] -= notes[i];
+        }
+        return new CashSnapshot(version + 1, restockEpoch + 1, newAvailable, newReserved, dispensed);
+    }
+
+    /**
+     * Completes a cassette reload: notes previously set aside with reserve(removed) leave the machine,
+     * and the added notes become available.
+     */
+    public CashSnapshot reload(int[] removed, int[] added) {
+        int[] newAvailable = available.clone();
+        int[] newReserved = reserved.clone();
+        for (int i = 0; i < DENOMINATIONS; i++) {
+            newAvailable[i] += added[i];
+            newReserved[i] -= removed[i];
+        }
+        return new CashSnapshot(version + 1, restockEpoch + 1, newAvailable, newReserved, dispensed);
+    }
+
+    public static int[] toCounts(Map<Denomination, Integer> notes) {
+        int[] counts = new int[DENOMINATIONS];
+        for (Map.Entry<Denomination, Integer> entry : notes.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() < 0) {
+                throw new IllegalArgumentException("Invalid note count for " + entry.getKey());
+            }
+            counts[entry.getKey().ordinal()] = entry.getValue();
+        }
+        return counts;
+    }
+
+    public static Map<Denomination, Integer> toMap(int[] counts) {
+        Map<Denomination, Integer> notes = new EnumMap<>(Denomination.class);
+        for (Denomination deno : Denomination.values()) {
+            notes.put(deno, counts[deno.ordinal()]);
+        }
+        return notes;
+    }
+
+    @Override
+    public String toString() {
+        return "CashSnapshot{version=" + version
+                + ", restockEpoch=" + restockEpoch
+                + ", available=" + Arrays.toString(available)
+                + ", reserved=" + Arrays.toString(reserved)
+                + ", dispensed=" + Arrays.toString(dispensed) + "}";
+    }
+}
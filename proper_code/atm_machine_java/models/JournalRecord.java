@@ -0,0 +1,76 @@
+package models;
+
+import enums.Denomination;
+import enums.JournalRecordType;
+
+import java.util.Map;
+
+/**
+ * One entry of a cash journal, for the ATM named by getAtmId.
+ * Counts are notes per denomination; RESERVE, DISPENSE and ROLLBACK carry the reservation's notes,
+ * LOAD carries the change in available notes (negative when a cassette is emptied), and the
+ * CHECKPOINT records restate counts in full (see JournalRecordType).
+ */
+public final class JournalRecord {
+    private final String atmId;
+    private final JournalRecordType type;
+    private final long sequence;
+    private final long reservationId;
+    private final long timestamp;
+    private final int[] counts;
+
+    public JournalRecord(String atmId, JournalRecordType type, long sequence, long reservationId, long timestamp,
+                         int[] counts) {
+        this.atmId = atmId;
+        this.type = type;
+        this.sequence = sequence;
+        this.reservationId = reservationId;
+        this.timestamp = timestamp;
+        this.counts = counts.clone();
+    }
+
+    /** ATM the record belongs to, or null if it was never journaled. */
+    public String getAtmId() {
+        return atmId;
+    }
+
+    public JournalRecordType getType() {
+        return type;
+    }
+
+    /** Position in the journal, or -1 if the record was never journaled. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getReservationId() {
+        return reservationId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getCount(Denomination deno) {
+        return counts[deno.ordinal()];
+    }
+
+    public Map<Denomination, Integer> getNotes() {
+        return CashSnapshot.toMap(counts);
+    }
+
+    /** Face value of the notes in this record. */
+    public long getAmount() {
+        long amount = 0;
+        for (Denomination deno : Denomination.values()) {
+            amount += (long) deno.getValue() * counts[deno.ordinal()];
+        }
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" + atmId + " " + type + ", sequence=" + sequence + ", reservationId=" + reservationId
+                + ", timestamp=" + timestamp + ", notes=" + getNotes() + "}";
+    }
+}
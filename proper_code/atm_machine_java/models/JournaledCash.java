@@ -0,0 +1,41 @@
+package models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One ATM's cash as its journal has recorded it: the counts a replay of its records gives, the
+ * reservations that have a RESERVE but neither a DISPENSE nor a ROLLBACK record, and the highest
+ * reservation id it has used.
+ */
+public final class JournaledCash {
+    private final String atmId;
+    private final CashSnapshot snapshot;
+    private final List<JournalRecord> inDoubtReservations;
+    private final long lastReservationId;
+
+    public JournaledCash(String atmId, CashSnapshot snapshot, List<JournalRecord> inDoubtReservations,
+                         long lastReservationId) {
+        this.atmId = atmId;
+        this.snapshot = snapshot;
+        this.inDoubtReservations = Collections.unmodifiableList(inDoubtReservations);
+        this.lastReservationId = lastReservationId;
+    }
+
+    public String getAtmId() {
+        return atmId;
+    }
+
+    public CashSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /** The RESERVE records of unsettled reservations, oldest first. */
+    public List<JournalRecord> getInDoubtReservations() {
+        return inDoubtReservations;
+    }
+
+    public long getLastReservationId() {
+        return lastReservationId;
+    }
+}
@@ -1,4 +1,69 @@
 package models;
 
-public class Receipt {
+import enums.Denomination;
+import enums.JournalRecordType;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Customer receipt for a withdrawal, built from the DISPENSE journal record, so what is printed
+ * always matches what is on disk.
+ */
+public final class Receipt {
+    private final String atmId;
+    private final long journalSequence;
+    private final long reservationId;
+    private final long timestamp;
+    private final long amount;
+    private final Map<Denomination, Integer> notes;
+
+    private Receipt(String atmId, JournalRecord record) {
+        this.atmId = atmId;
+        this.journalSequence = record.getSequence();
+        this.reservationId = record.getReservationId();
+        this.timestamp = record.getTimestamp();
+        this.amount = record.getAmount();
+        this.notes = Collections.unmodifiableMap(record.getNotes());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the record is not a DISPENSE record
+     */
+    public static Receipt from(String atmId, JournalRecord record) {
+        if (record.getType() != JournalRecordType.DISPENSE) {
+            throw new IllegalArgumentException("Receipts are only issued for DISPENSE records, got " + record.getType());
+        }
+        return new Receipt(atmId, record);
+    }
+
+    public String getAtmId() {
+        return atmId;
+    }
+
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public long getReservationId() {
+        return reservationId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public Map<Denomination, Integer> getNotes() {
+        return notes;
+    }
+
+    @Override
+    public String toString() {
+        return "Receipt{atm=" + atmId + ", txn=" + reservationId + ", journalSeq=" + journalSequence
+                + ", amount=" + amount + ", timestamp=" + timestamp + "}";
+    }
 }
@@ -0,0 +1,52 @@
+package models;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of settling a fleet: totals for the fleet and each region, every ATM's line, and the
+ * lines that did not reconcile.
+ */
+public final class SettlementReport {
+    private final SettlementTotals fleetTotals;
+    private final Map<String, SettlementTotals> regionTotals;
+    private final List<AtmSettlement> atmSettlements;
+    private final List<AtmSettlement> mismatches;
+    private final long elapsedMillis;
+
+    public SettlementReport(SettlementTotals fleetTotals, Map<String, SettlementTotals> regionTotals,
+                            List<AtmSettlement> atmSettlements, List<AtmSettlement> mismatches, long elapsedMillis) {
+        this.fleetTotals = fleetTotals;
+        this.regionTotals = Collections.unmodifiableMap(regionTotals);
+        this.atmSettlements = Collections.unmodifiableList(atmSettlements);
+        this.mismatches = Collections.unmodifiableList(mismatches);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public SettlementTotals getFleetTotals() {
+        return fleetTotals;
+    }
+
+    public Map<String, SettlementTotals> getRegionTotals() {
+        return regionTotals;
+    }
+
+    public List<AtmSettlement> getAtmSettlements() {
+        return atmSettlements;
+    }
+
+    public List<AtmSettlement> getMismatches() {
+        return mismatches;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SettlementReport{" + fleetTotals + ", regions=" + regionTotals.keySet()
+                + ", mismatches=" + mismatches.size() + ", elapsedMillis=" + elapsedMillis + "}";
+    }
+}
@@ -0,0 +1,77 @@
+package models;
+
+import enums.Denomination;
+
+/**
+ * Note counts per denomination summed over a set of ATMs (one ATM, a region or the fleet).
+ * Mutable so fork/join partial results can be merged without copying; not thread-safe.
+ */
+public final class SettlementTotals {
+    private static final Denomination[] DENOMINATIONS = Denomination.values();
+
+    private final long[] dispensedNotes = new long[DENOMINATIONS.length];
+    private final long[] remainingNotes = new long[DENOMINATIONS.length];
+    private final long[] reservedNotes = new long[DENOMINATIONS.length];
+    private int atmCount;
+
+    public void add(CashSnapshot snapshot) {
+        for (Denomination deno : DENOMINATIONS) {
+            int i = deno.ordinal();
+            dispensedNotes[i] += snapshot.getDispensed(deno);
+            remainingNotes[i] += snapshot.getAvailable(deno);
+            reservedNotes[i] += snapshot.getReserved(deno);
+        }
+        atmCount++;
+    }
+
+    public void merge(SettlementTotals other) {
+        for (int i = 0; i < DENOMINATIONS.length; i++) {
+            dispensedNotes[i] += other.dispensedNotes[i];
+            remainingNotes[i] += other.remainingNotes[i];
+            reservedNotes[i] += other.reservedNotes[i];
+        }
+        atmCount += other.atmCount;
+    }
+
+    public long getDispensedNotes(Denomination deno) {
+        return dispensedNotes[deno.ordinal()];
+    }
+
+    public long getRemainingNotes(Denomination deno) {
+        return remainingNotes[deno.ordinal()];
+    }
+
+    public long getReservedNotes(Denomination deno) {
+        return reservedNotes[deno.ordinal()];
+    }
+
+    public long getDispensedAmount() {
+        return amount(dispensedNotes);
+    }
+
+    public long getRemainingAmount() {
+        return amount(remainingNotes);
+    }
+
+    public long getReservedAmount() {
+        return amount(reservedNotes);
+    }
+
+    public int getAtmCount() {
+        return atmCount;
+    }
+
+    private static long amount(long[] notes) {
+        long amount = 0;
+        for (Denomination deno : DENOMINATIONS) {
+            amount += deno.getValue() * notes[deno.ordinal()];
+        }
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return "SettlementTotals{atms=" + atmCount + ", dispensed=" + getDispensedAmount()
+                + ", remaining=" + getRemainingAmount() + ", reserved=" + getReservedAmount() + "}";
+    }
+}
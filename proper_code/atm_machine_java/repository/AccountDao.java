@@ -0,0 +1,151 @@
+package repository;
+
+import util.LongIntHashMap;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Account balances keyed by account number, in the smallest currency unit.
+ *
+ * Like CardDao, accounts live in a LongIntHashMap plus a primitive balance column instead of one
+ * object per account. Debits and credits only take the shared lock and settle with a CAS on the
+ * balance, so concurrent withdrawals on different (or the same) accounts never wait for each other;
+ * the exclusive lock is only needed to add accounts.
+ */
+public class AccountDao {
+
+    private final StampedLock lock = new StampedLock();
+    private final LongIntHashMap slotsByAccount;
+    private int size;
+    private AtomicLongArray balances;
+
+    public AccountDao(int expectedAccounts) {
+        int capacity = Math.max(16, expectedAccounts);
+        this.slotsByAccount = new LongIntHashMap(capacity);
+        this.balances = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the account number is 0 or the balance is negative
+     * @throws IllegalStateException if the account already exists
+     */
+    public void addAccount(long accountNumber, long balance) {
+        if (accountNumber == 0) {
+            throw new IllegalArgumentException("Account number 0 is not valid");
+        }
+        if (balance < 0) {
+            throw new IllegalArgumentException("Opening balance cannot be negative");
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (slotsByAccount.containsKey(accountNumber)) {
+                throw new IllegalStateException("Account " + accountNumber + " already exists");
+            }
+            if (size == balances.length()) {
+                AtomicLongArray grown = new AtomicLongArray(size * 2);
+                for (int i = 0; i < size; i++) {
+                    grown.set(i, balances.get(i));
+                }
+                balances = grown;
+            }
+            int slot = size++;
+            slotsByAccount.put(accountNumber, slot);
+            balances.set(slot, balance);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean containsAccount(long accountNumber) {
+        long stamp = lock.readLock();
+        try {
+            return slotsByAccount.containsKey(accountNumber);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the account does not exist
+     */
+    public long getBalance(long accountNumber) {
+        long stamp = lock.readLock();
+        try {
+            return balances.get(slotOf(accountNumber));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Takes the amount from the account if the balance covers it.
+     *
+     * @return false if the balance is too low
+     * @throws IllegalArgumentException if the amount is not positive or the account does not exist
+     */
+    public boolean debit(long accountNumber, long amount) {
+        checkAmount(amount);
+        long stamp = lock.readLock();
+        try {
+            int slot = slotOf(accountNumber);
+            while (true) {
+                long balance = balances.get(slot);
+                if (balance < amount) {
+                    return false;
+                }
+                if (balances.compareAndSet(slot, balance, balance - amount)) {
+                    return true;
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the amount is not positive or the account does not exist
+     */
+    public void credit(long accountNumber, long amount) {
+        checkAmount(amount);
+        long stamp = lock.readLock();
+        try {
+            balances.addAndGet(slotOf(accountNumber), amount);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static void checkAmount(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+
+    private int slotOf(long accountNumber) {
+        int slot = slotsByAccount.get(accountNumber);
+        if (slot == LongIntHashMap.MISSING) {
+            throw new IllegalArgumentException("Unknown account " + accountNumber);
+        }
+        return slot;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Bytes held by the index and the balance column. */
+    public long footprintBytes() {
+        long stamp = lock.readLock();
+        try {
+            return slotsByAccount.footprintBytes() + (long) balances.length() * Long.BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package repository;
+
+import constants.AtmConstants;
+import models.Card;
+import util.LongIntHashMap;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Cards issued to the fleet's customers, keyed by 16-digit PAN.
+ *
+ * Cards are stored column-wise: a LongIntHashMap maps each PAN to a slot, and the slot indexes
+ * primitive arrays for the CVV, linked account, PIN hash and recent PIN failures. There is no
+ * object per card, so a host holds millions of cards in roughly 100 bytes each; Card objects are
+ * only built when asked for.
+ *
+ * PINs are never stored, only a PBKDF2 hash salted with the PAN. Verifying one is deliberately
+ * slow, which is why callers should go through CardAuthService and its cache.
+ */
+public class CardDao {
+
+    private static final int PIN_HASH_LONGS = 2;
+    private static final int FAILURES = AtmConstants.MAX_FAILED_PIN_ATTEMPTS;
+
+    private final StampedLock lock = new StampedLock();
+    private final LongIntHashMap slotsByPan;
+    private int size;
+    private int[] cvvs;
+    private long[] accountNumbers;
+    private long[] pinHashes;
+    private long[] pinFailureTimes;
+
+    public CardDao(int expectedCards) {
+        int capacity = Math.max(16, expectedCards);
+        this.slotsByPan = new LongIntHashMap(capacity);
+        this.cvvs = new int[capacity];
+        this.accountNumbers = new long[capacity];
+        this.pinHashes = new long[capacity * PIN_HASH_LONGS];
+        this.pinFailureTimes = new long[capacity * FAILURES];
+    }
+
+    /**
+     * Issues a card, hashing its PIN.
+     *
+     * @throws IllegalArgumentException if the PAN is 0
+     * @throws IllegalStateException if the PAN is already issued
+     */
+    public void addCard(long pan, int cvv, long accountNumber, String pin) {
+        addCardWithPinHash(pan, cvv, accountNumber, hashPin(pan, pin));
+    }
+
+    /**
+     * Issues a card whose PIN hash was computed elsewhere, e.g. a bulk load from the issuer.
+     *
+     * @param pinHash Output of hashPin for this PAN
+     * @throws IllegalArgumentException if the PAN is 0
+     * @throws IllegalStateException if the PAN is already issued
+     */
+    public void addCardWithPinHash(long pan, int cvv, long accountNumber, byte[] pinHash) {
+        if (pan == 0) {
+            throw new IllegalArgumentException("PAN 0 is not valid");
+        }
+        ByteBuffer hash = ByteBuffer.wrap(pinHash);
+        long stamp = lock.writeLock();
+        try {
+            if (slotsByPan.containsKey(pan)) {
+                throw new IllegalStateException("Card " + mask(pan) + " is already issued");
+            }
+            if (size == cvvs.length) {
+                grow();
+            }
+            int slot = size++;
+            slotsByPan.put(pan, slot);
+            cvvs[slot] = cvv;
+            accountNumbers[slot] = accountNumber;
+            pinHashes[slot * PIN_HASH_LONGS] = hash.getLong(0);
+            pinHashes[slot * PIN_HASH_LONGS + 1] = hash.getLong(Long.BYTES);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void grow() {
+        int capacity = cvvs.length * 2;
+        cvvs = Arrays.copyOf(cvvs, capacity);
+        accountNumbers = Arrays.copyOf(accountNumbers, capacity);
+        pinHashes = Arrays.copyOf(pinHashes, capacity * PIN_HASH_LONGS);
+        pinFailureTimes = Arrays.copyOf(pinFailureTimes, capacity * FAILURES);
+    }
+
+    /**
+     * @return The card, or null if the PAN is not issued
+     */
+    public Card getCard(long pan) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slotsByPan.get(pan);
+            return slot == LongIntHashMap.MISSING ? null : new Card(pan, cvvs[slot]);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsCard(long pan) {
+        long stamp = lock.readLock();
+        try {
+            return slotsByPan.containsKey(pan);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return The linked account number, or -1 if the PAN is not issued
+     */
+    public long getAccountNumber(long pan) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slotsByPan.get(pan);
+            return slot == LongIntHashMap.MISSING ? -1 : accountNumbers[slot];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Checks a PIN against the stored hash. Slow by design; the hash runs outside the lock.
+     *
+     * @return false if the PIN is wrong or the PAN is not issued
+     */
+    public boolean verifyPin(long pan, String pin) {
+        byte[] stored = new byte[PIN_HASH_LONGS * Long.BYTES];
+        long stamp = lock.readLock();
+        try {
+            int slot = slotsByPan.get(pan);
+            if (slot == LongIntHashMap.MISSING) {
+                return false;
+            }
+            ByteBuffer.wrap(stored)
+                    .putLong(pinHashes[slot * PIN_HASH_LONGS])
+                    .putLong(pinHashes[slot * PIN_HASH_LONGS + 1]);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return MessageDigest.isEqual(stored, hashPin(pan, pin));
+    }
+
+    /**
+     * PBKDF2-HMAC-SHA256 of the PIN salted with the PAN, truncated to 16 bytes.
+     */
+    public static byte[] hashPin(long pan, String pin) {
+        byte[] salt = ByteBuffer.allocate(Long.BYTES).putLong(pan).array();
+        PBEKeySpec spec = new PBEKeySpec(pin.toCharArray(), salt, AtmConstants.PIN_HASH_ITERATIONS,
+                PIN_HASH_LONGS * Long.SIZE);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PIN hashing is unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Records a wrong PIN in the card's sliding window of the last MAX_FAILED_PIN_ATTEMPTS failures.
+     *
+     * @return When the card unlocks, or 0 if it is not locked
+     */
+    public long recordPinFailure(long pan, long now) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotsByPan.get(pan);
+            if (slot == LongIntHashMap.MISSING) {
+                return 0;
+            }
+            int base = slot * FAILURES;
+            int oldest = base;
+            for (int i = base + 1; i < base + FAILURES; i++) {
+                if (pinFailureTimes[i] < pinFailureTimes[oldest]) {
+                    oldest = i;
+                }
+            }
+            pinFailureTimes[oldest] = now;
+            return lockedUntil(base, now);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return When the card unlocks, or 0 if it is not locked (or not issued)
+     */
+    public long getLockedUntil(long pan, long now) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slotsByPan.get(pan);
+            return slot == LongIntHashMap.MISSING ? 0 : lockedUntil(slot * FAILURES, now);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Locked while every recorded failure falls inside the window; unlocks when the oldest one leaves it.
+     */
+    private long lockedUntil(int base, long now) {
+        long oldest = Long.MAX_VALUE;
+        for (int i = base; i < base + FAILURES; i++) {
+            oldest = Math.min(oldest, pinFailureTimes[i]);
+        }
+        long unlocksAt = oldest + AtmConstants.PIN_LOCKOUT_WINDOW_MILLIS;
+        return oldest > 0 && unlocksAt > now ? unlocksAt : 0;
+    }
+
+    /**
+     * Forgets recent wrong PINs, e.g. after a correct one.
+     */
+    public void clearPinFailures(long pan) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slotsByPan.get(pan);
+            if (slot == LongIntHashMap.MISSING || !hasPinFailures(slot * FAILURES)) {
+                return;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        stamp = lock.writeLock();
+        try {
+            int base = slotsByPan.get(pan) * FAILURES;
+            Arrays.fill(pinFailureTimes, base, base + FAILURES, 0L);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean hasPinFailures(int base) {
+        for (int i = base; i < base + FAILURES; i++) {
+            if (pinFailureTimes[i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Bytes held by the index and the card columns. */
+    public long footprintBytes() {
+        long stamp = lock.readLock();
+        try {
+            return slotsByPan.footprintBytes()
+                    + (long) cvvs.length * Integer.BYTES
+                    + (long) accountNumbers.length * Long.BYTES
+                    + (long) pinHashes.length * Long.BYTES
+                    + (long) pinFailureTimes.length * Long.BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** PAN with all but the last four digits hidden, for messages and logs. */
+    public static String mask(long pan) {
+        String digits = Long.toString(pan);
+        return "*".repeat(Math.max(0, digits.length() - 4)) + digits.substring(Math.max(0, digits.length() - 4));
+    }
+}
@@ -1,32 +1,275 @@
 package repository;
 
 import enums.Denomination;
-import util.AmountNeeded;
+import enums.JournalRecordType;
+import models.CashSnapshot;
+import models.JournalRecord;
+import models.JournaledCash;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Cash held by one ATM.
+ * The note counts live in an immutable CashSnapshot that is replaced with compare-and-set, so a
+ * withdrawal across several denominations either reserves every note it needs or none of them.
+ * Concurrent sessions never take a lock; a session that loses a race simply retries against the
+ * newer snapshot, and no update can be lost.
+ *
+ * Withdrawal protocol: reserve -> (dispense) -> commit, or rollback if the dispenser faults.
+ *
+ * With a CashJournal attached, every step is on disk before the call returns, so notes are never
+ * dispensed without a RESERVE record. Every record is a delta (a LOAD stores the change in
+ * available notes), so replay gives the same balances whatever order racing sessions were
+ * journaled in. One journal is normally shared by every ATM of a fleet so that their forces are
+ * grouped; each CashDao writes only the records tagged with its ATM id, and is recovered from the
+ * counts the journal replayed for that id.
+ */
 public class CashDao {
 
-    private Map<Denomination, Integer> data = new HashMap<>();
+    private static final int DENOMINATIONS = Denomination.values().length;
+
+    private final AtomicReference<CashSnapshot> data;
+    private final AtomicLong reservationCounter;
+    private final CashJournal journal;
+    private final int journalTag;
+    private final List<CashReservation> inDoubtReservations;
+    private final ReentrantLock reloadLock = new ReentrantLock();
 
     public CashDao(Map<Denomination, Integer> data) {
-        this.data = data;
+        this.data = new AtomicReference<>(CashSnapshot.initial(data));
+        this.reservationCounter = new AtomicLong(0);
+        this.journal = null;
+        this.journalTag = -1;
+        this.inDoubtReservations = Collections.emptyList();
+    }
+
+    /**
+     * Cash for a new ATM, journaled from its first load.
+     *
+     * @throws IllegalStateException if the journal already has records for this ATM; use recover for those
+     */
+    public CashDao(String atmId, Map<Denomination, Integer> data, CashJournal journal) {
+        if (journal.isAttached(atmId)) {
+            throw new IllegalStateException("Journal " + journal.getDirectory() + " already has records for " + atmId
+                    + ", recover it instead");
+        }
+        CashSnapshot initial = CashSnapshot.initial(data);
+        this.journalTag = journal.attach(atmId);
+        journal.append(journalTag, JournalRecordType.LOAD, 0, CashSnapshot.toCounts(data));
+        this.data = new AtomicReference<>(initial);
+        this.reservationCounter = new AtomicLong(0);
+        this.journal = journal;
+        this.inDoubtReservations = Collections.emptyList();
+    }
+
+    private CashDao(CashSnapshot snapshot, long lastReservationId, CashJournal journal, int journalTag,
+                    List<CashReservation> inDoubtReservations) {
+        this.data = new AtomicReference<>(snapshot);
+        this.reservationCounter = new AtomicLong(lastReservationId);
+        this.journal = journal;
+        this.journalTag = journalTag;
+        this.inDoubtReservations = Collections.unmodifiableList(inDoubtReservations);
+    }
+
+    /**
+     * Rebuilds an ATM's cash from its records in the journal, and keeps journaling to it.
+     * The journal replayed its records when it was opened, so this does not scan it again.
+     * Reservations with neither a DISPENSE nor a ROLLBACK record were interrupted mid-dispense; they
+     * stay reserved and are returned by getInDoubtReservations until an operator settles them
+     * (commit or rollback) after counting the cassettes.
+     *
+     * @throws IllegalStateException if the journal has no records for this ATM
+     */
+    public static CashDao recover(CashJournal journal, String atmId) {
+        JournaledCash cash = journal.getJournaledCash(atmId);
+        if (cash == null) {
+            throw new IllegalStateException("Journal " + journal.getDirectory() + " has no records for " + atmId);
+        }
+        return recover(journal, cash);
     }
 
+    /**
+     * Rebuilds every ATM with records in the journal, keyed by ATM id in the order they attached.
+     * Use this to restart a fleet: it costs one pass over the journal (done by open) for all of them.
+     */
+    public static Map<String, CashDao> recoverAll(CashJournal journal) {
+        Map<String, CashDao> recovered = new LinkedHashMap<>();
+        for (JournaledCash cash : journal.getJournaledCash()) {
+            recovered.put(cash.getAtmId(), recover(journal, cash));
+        }
+        return recovered;
+    }
+
+    private static CashDao recover(CashJournal journal, JournaledCash cash) {
+        List<JournalRecord> pending = cash.getInDoubtReservations();
+        List<CashReservation> inDoubt = new ArrayList<>(pending.size());
+        CashDao recovered = new CashDao(cash.getSnapshot(), cash.getLastReservationId(), journal,
+                journal.attach(cash.getAtmId()), inDoubt);
+        for (JournalRecord record : pending) {
+            // Owned by the recovered CashDao so that an operator can settle them through it
+            inDoubt.add(new CashReservation(recovered, record.getReservationId(),
+                    CashSnapshot.toCounts(record.getNotes())));
+        }
+        return recovered;
+    }
+
+    /**
+     * Replaces the available note counts, e.g. after a cassette reload.
+     * Reservations in flight are unaffected; one racing the reload takes its notes from the new counts.
+     *
+     * The reload is applied as a delta in two steps, so that its LOAD record is durable before any
+     * session can see the new notes: notes being removed are first set aside like a reservation
+     * (so no session can take them), then the LOAD is journaled, and only then are the removed notes
+     * dropped and the added ones published.
+     */
     public void setData(Map<Denomination, Integer> data) {
-        this.data = data;
+        int[] counts = CashSnapshot.toCounts(data);
+        reloadLock.lock();
+        try {
+            int[] removed = new int[DENOMINATIONS];
+            int[] added = new int[DENOMINATIONS];
+            int[] delta = new int[DENOMINATIONS];
+            CashSnapshot current;
+            CashSnapshot next;
+            do {
+                current = this.data.get();
+                for (int i = 0; i < DENOMINATIONS; i++) {
+                    delta[i] = counts[i] - current.getAvailable(Denomination.values()[i]);
+                    removed[i] = Math.max(0, -delta[i]);
+                    added[i] = Math.max(0, delta[i]);
+                }
+                // Never null: removed is at most what this snapshot has available
+                next = current.reserve(removed);
+            } while (!this.data.compareAndSet(current, next));
+
+            if (journal != null) {
+                try {
+                    journal.append(journalTag, JournalRecordType.LOAD, 0, delta);
+                } catch (RuntimeException e) {
+                    update(JournalRecordType.ROLLBACK, removed);
+                    throw e;
+                }
+            }
+            do {
+                current = this.data.get();
+                next = current.reload(removed, added);
+            } while (!this.data.compareAndSet(current, next));
+        } finally {
+            reloadLock.unlock();
+        }
     }
 
-//    private synchronized getAndReduceCash(ArrayList<AmountNeeded> amountNeeded) {
-//        int n = amountNeeded.size();
-//        for (int i = 0; i < n; ++ i) {
-//            if ()
-//        }
-//    }
+    /**
+     * Atomically sets aside notes for a withdrawal.
+     *
+     * @param notes Number of notes needed per denomination
+     * @return The reservation, or null if the ATM does not hold enough of some denomination
+     */
+    public CashReservation reserve(Map<Denomination, Integer> notes) {
+        int[] counts = CashSnapshot.toCounts(notes);
+        while (true) {
+            CashSnapshot current = data.get();
+            CashSnapshot next = current.reserve(counts);
+            if (next == null) {
+                return null;
+            }
+            if (data.compareAndSet(current, next)) {
+                CashReservation reservation = new CashReservation(this, reservationCounter.incrementAndGet(), counts);
+                if (journal != null) {
+                    try {
+                        journal.append(journalTag, JournalRecordType.RESERVE, reservation.getReservationId(), counts);
+                    } catch (RuntimeException e) {
+                        // Not durable, so the notes must not be dispensed
+                        reservation.markRolledBack();
+                        update(JournalRecordType.ROLLBACK, counts);
+                        throw e;
+                    }
+                }
+                return reservation;
+            }
+        }
+    }
+
+    /**
+     * Marks the reserved notes as dispensed.
+     *
+     * @return The DISPENSE record (sequence -1 when there is no journal), e.g. for printing a receipt
+     * @throws IllegalArgumentException if the reservation was issued by another CashDao
+     * @throws IllegalStateException if the reservation was already committed or rolled back
+     */
+    public JournalRecord commit(CashReservation reservation) {
+        checkOwner(reservation);
+        if (!reservation.markCommitted()) {
+            throw new IllegalStateException("Reservation " + reservation.getReservationId() + " is already settled");
+        }
+        update(JournalRecordType.DISPENSE, reservation.counts());
+        return journal(JournalRecordType.DISPENSE, reservation);
+    }
+
+    /**
+     * Returns the reserved notes to the cassettes, e.g. after a dispenser fault.
+     *
+     * @throws IllegalArgumentException if the reservation was issued by another CashDao
+     * @throws IllegalStateException if the reservation was already committed or rolled back
+     */
+    public void rollback(CashReservation reservation) {
+        checkOwner(reservation);
+        if (!reservation.markRolledBack()) {
+            throw new IllegalStateException("Reservation " + reservation.getReservationId() + " is already settled");
+        }
+        update(JournalRecordType.ROLLBACK, reservation.counts());
+        journal(JournalRecordType.ROLLBACK, reservation);
+    }
+
+    private void checkOwner(CashReservation reservation) {
+        if (!reservation.isOwnedBy(this)) {
+            throw new IllegalArgumentException("Reservation " + reservation.getReservationId() + " belongs to another ATM");
+        }
+    }
+
+    private void update(JournalRecordType type, int[] counts) {
+        CashSnapshot current;
+        CashSnapshot next;
+        do {
+            current = data.get();
+            next = type == JournalRecordType.DISPENSE ? current.commit(counts) : current.rollback(counts);
+        } while (!data.compareAndSet(current, next));
+    }
+
+    private JournalRecord journal(JournalRecordType type, CashReservation reservation) {
+        if (journal == null) {
+            return new JournalRecord(null, type, -1, reservation.getReservationId(), System.currentTimeMillis(),
+                    reservation.counts());
+        }
+        return journal.append(journalTag, type, reservation.getReservationId(), reservation.counts());
+    }
+
+    /**
+     * Consistent view of all denominations at one version.
+     */
+    public CashSnapshot getSnapshot() {
+        return data.get();
+    }
 
     public Integer getAvailableBalanceForDeno(Denomination deno) {
-        return data.get(deno);
+        return data.get().getAvailable(deno);
+    }
+
+    /**
+     * Reservations found unsettled by recover; empty for a CashDao that was not recovered.
+     */
+    public List<CashReservation> getInDoubtReservations() {
+        return inDoubtReservations;
+    }
+
+    public CashJournal getJournal() {
+        return journal;
     }
 }
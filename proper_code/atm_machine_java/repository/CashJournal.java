@@ -0,0 +1,700 @@
+package repository;
+
+import enums.Denomination;
+import enums.JournalRecordType;
+import models.CashSnapshot;
+import models.JournalRecord;
+import models.JournaledCash;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped journal of the cash movements of a fleet of ATMs.
+ *
+ * Records are fixed-size (RECORD_SIZE bytes) and carry a CRC32C over their body, so recovery can
+ * find the end of the log without a separate index: it stops at the first slot that is empty or
+ * fails its checksum (a torn write from a crash), and wipes anything stale behind it.
+ *
+ * Layout: crc(4) type(1) pad(3) sequence(8) reservationId(8) timestamp(8) atmTag(4) counts(4 per denomination)
+ *
+ * Every record is tagged with a small per-journal number for its ATM. The first record of an ATM is
+ * an ATTACH record that binds the tag to the ATM id (stored in place of the counts), so the mapping
+ * is rebuilt by the same scan that finds the end of the log.
+ *
+ * The journal is a directory of fixed-size segment files, named after the sequence of their first
+ * record, and only the newest one is live. When it fills up the journal rotates: the next segment
+ * starts with a checkpoint (the ATTACH records, then per ATM a CHECKPOINT, a CHECKPOINT_DISPENSED
+ * and a RESERVE for each pending reservation), is forced and renamed into place, and the older
+ * segment is deleted. Recovery therefore only replays the newest segment. The journal keeps each
+ * ATM's replayed counts up to date as it appends, which is where checkpoints and getJournaledCash
+ * come from, so neither has to scan the log.
+ *
+ * Group commit: appending only copies the record into the mapping under a short lock. Making it
+ * durable is a separate step in which one waiting session (the leader) forces every record written
+ * so far to disk, while sessions that arrive during the force wait for the next round. Sessions on
+ * one ATM run one at a time, so the sharing comes from the fleet: N ATMs mid-withdrawal share
+ * roughly one msync instead of paying N.
+ */
+public class CashJournal implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 64;
+    /** Records per segment unless open is given another size: 64 MB. */
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+    private static final int MAX_SEGMENT_RECORDS = Integer.MAX_VALUE / RECORD_SIZE;
+    private static final int HEADER_SIZE = 36;
+    private static final int MAX_ATM_ID_BYTES = RECORD_SIZE - HEADER_SIZE - 1;
+    private static final int DENOMINATIONS = Denomination.values().length;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    static {
+        if (HEADER_SIZE + 4 * DENOMINATIONS > RECORD_SIZE) {
+            throw new IllegalStateException("Journal record is too small for " + DENOMINATIONS + " denominations");
+        }
+    }
+
+    private final Path directory;
+    private final int segmentRecords;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final CRC32C appendCrc = new CRC32C();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    /** Sequence of the first record in the live segment. */
+    private long segmentBase;
+    private long nextSequence;
+    /** Records before this sequence are covered by a checkpoint that is already on disk. */
+    private long checkpointedThrough;
+    private long checkpointCount;
+    private final Map<String, Integer> tagsByAtmId = new HashMap<>();
+    private final List<Ledger> ledgersByTag = new ArrayList<>();
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private long durableSequence;
+    private boolean syncInProgress;
+    private long syncCount;
+
+    /**
+     * One ATM's counts as its records in this journal replay to.
+     */
+    private static final class Ledger {
+        final String atmId;
+        final int[] available = new int[DENOMINATIONS];
+        final int[] reserved = new int[DENOMINATIONS];
+        final int[] dispensed = new int[DENOMINATIONS];
+        final Map<Long, JournalRecord> pending = new LinkedHashMap<>();
+        long lastReservationId;
+        long recordCount;
+
+        Ledger(String atmId) {
+            this.atmId = atmId;
+        }
+
+        void apply(JournalRecord record) {
+            recordCount++;
+            long reservationId = record.getReservationId();
+            switch (record.getType()) {
+                case CHECKPOINT -> {
+                    for (Denomination deno : Denomination.values()) {
+                        available[deno.ordinal()] = record.getCount(deno);
+                        reserved[deno.ordinal()] = 0;
+                    }
+                    pending.clear();
+                    lastReservationId = reservationId;
+                    return;
+                }
+                case CHECKPOINT_DISPENSED -> {
+                    for (Denomination deno : Denomination.values()) {
+                        dispensed[deno.ordinal()] = record.getCount(deno);
+                    }
+                    return;
+                }
+                default -> lastReservationId = Math.max(lastReservationId, reservationId);
+            }
+            for (Denomination deno : Denomination.values()) {
+                int i = deno.ordinal();
+                int count = record.getCount(deno);
+                switch (record.getType()) {
+                    case LOAD -> available[i] += count;
+                    case RESERVE -> {
+                        available[i] -= count;
+                        reserved[i] += count;
+                    }
+                    case DISPENSE -> {
+                        reserved[i] -= count;
+                        dispensed[i] += count;
+                    }
+                    case ROLLBACK -> {
+                        reserved[i] -= count;
+                        available[i] += count;
+                    }
+                    default -> {
+                    }
+                }
+            }
+            switch (record.getType()) {
+                case RESERVE -> pending.put(reservationId, record);
+                case DISPENSE, ROLLBACK -> pending.remove(reservationId);
+                default -> {
+                }
+            }
+        }
+
+        /** Notes in the cassettes, reserved or not; what a CHECKPOINT record carries. */
+        int[] held() {
+            int[] held = new int[DENOMINATIONS];
+            for (int i = 0; i < DENOMINATIONS; i++) {
+                held[i] = available[i] + reserved[i];
+            }
+            return held;
+        }
+
+        JournaledCash toJournaledCash() {
+            return new JournaledCash(atmId, CashSnapshot.restored(recordCount, available, reserved, dispensed),
+                    new ArrayList<>(pending.values()), lastReservationId);
+        }
+    }
+
+    private CashJournal(Path directory, int segmentRecords, FileChannel channel, MappedByteBuffer buffer,
+                        long segmentBase) {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.segmentBase = segmentBase;
+    }
+
+    /**
+     * Opens (or creates) the journal in a directory with segments of DEFAULT_SEGMENT_RECORDS records.
+     */
+    public static CashJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Opens (or creates) the journal in a directory and replays its newest segment. Segments left
+     * behind by a rotation that a crash interrupted are deleted: a temporary file was never renamed
+     * into place, and an older segment is superseded by the checkpoint of the newer one.
+     *
+     * @param segmentRecords Records per new segment; an existing segment keeps its size
+     * @throws IllegalArgumentException if segmentRecords is below 2 or a segment would exceed 2 GB
+     */
+    public static CashJournal open(Path directory, int segmentRecords) throws IOException {
+        if (segmentRecords < 2 || segmentRecords > MAX_SEGMENT_RECORDS) {
+            throw new IllegalArgumentException("Segment size must be between 2 and " + MAX_SEGMENT_RECORDS
+                    + " records: " + segmentRecords);
+        }
+        Files.createDirectories(directory);
+        List<Long> bases = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.delete(entry);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    bases.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+        Collections.sort(bases);
+        long base = bases.isEmpty() ? 0 : bases.get(bases.size() - 1);
+        for (int i = 0; i < bases.size() - 1; i++) {
+            Files.delete(segmentPath(directory, bases.get(i)));
+        }
+
+        FileChannel channel = FileChannel.open(segmentPath(directory, base),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = Math.min(channel.size() - channel.size() % RECORD_SIZE,
+                (long) MAX_SEGMENT_RECORDS * RECORD_SIZE);
+        long capacity = Math.max(fileSize, (long) segmentRecords * RECORD_SIZE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        CashJournal journal = new CashJournal(directory, segmentRecords, channel, buffer, base);
+        journal.replay((int) fileSize);
+        return journal;
+    }
+
+    private static Path segmentPath(Path directory, long base) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Rebuilds the tags and ledgers from the live segment, then wipes what follows its last valid record.
+     */
+    private void replay(int fileSize) {
+        CRC32C crc = new CRC32C();
+        int end = 0;
+        while (end < fileSize && isValid(buffer, end, segmentBase + end / RECORD_SIZE, crc, ledgersByTag.size())) {
+            JournalRecordType type = JournalRecordType.fromCode(buffer.get(end + 4));
+            if (type == JournalRecordType.ATTACH) {
+                String atmId = readAtmId(buffer, end);
+                tagsByAtmId.put(atmId, ledgersByTag.size());
+                ledgersByTag.add(new Ledger(atmId));
+            } else {
+                ledgersByTag.get(buffer.getInt(end + 32)).apply(decode(buffer, end, type, ledgersByTag));
+            }
+            end += RECORD_SIZE;
+        }
+        wipeTail(buffer, end, fileSize);
+        nextSequence = segmentBase + end / RECORD_SIZE;
+        durableSequence = nextSequence;
+        checkpointedThrough = nextSequence;
+    }
+
+    /**
+     * @param attached Number of ATTACH records before this one; a cash record must use one of their tags
+     */
+    private static boolean isValid(MappedByteBuffer buffer, int offset, long sequence, CRC32C crc, int attached) {
+        JournalRecordType type = JournalRecordType.fromCode(buffer.get(offset + 4));
+        if (type == null || buffer.getLong(offset + 8) != sequence) {
+            return false;
+        }
+        int tag = buffer.getInt(offset + 32);
+        if (type == JournalRecordType.ATTACH ? tag != attached : tag < 0 || tag >= attached) {
+            return false;
+        }
+        return buffer.getInt(offset) == checksum(buffer, offset, crc);
+    }
+
+    private static String readAtmId(MappedByteBuffer buffer, int offset) {
+        byte[] bytes = new byte[buffer.get(offset + HEADER_SIZE)];
+        buffer.get(offset + HEADER_SIZE + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static JournalRecord decode(MappedByteBuffer buffer, int offset, JournalRecordType type,
+                                        List<Ledger> ledgers) {
+        int[] counts = new int[DENOMINATIONS];
+        for (int i = 0; i < DENOMINATIONS; i++) {
+            counts[i] = buffer.getInt(offset + HEADER_SIZE + 4 * i);
+        }
+        return new JournalRecord(ledgers.get(buffer.getInt(offset + 32)).atmId, type,
+                buffer.getLong(offset + 8), buffer.getLong(offset + 16), buffer.getLong(offset + 24), counts);
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int offset, CRC32C crc) {
+        crc.reset();
+        crc.update(buffer.slice(offset + 4, RECORD_SIZE - 4));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Zeroes slots after the last valid record. Without this, a later crash could expose records
+     * from before the previous crash as if they followed the new ones.
+     */
+    private static void wipeTail(MappedByteBuffer buffer, int from, int to) {
+        int lastDirty = -1;
+        for (int offset = from; offset < to; offset += RECORD_SIZE) {
+            if (buffer.get(offset + 4) != 0) {
+                lastDirty = offset;
+            }
+        }
+        if (lastDirty < 0) {
+            return;
+        }
+        for (int offset = from; offset <= lastDirty; offset += 8) {
+            buffer.putLong(offset, 0L);
+        }
+        buffer.force(from, lastDirty + RECORD_SIZE - from);
+    }
+
+    /**
+     * Binds an ATM to this journal, writing its ATTACH record the first time, and returns the tag
+     * to pass to append.
+     *
+     * @throws IllegalArgumentException if the id is longer than MAX_ATM_ID_BYTES in UTF-8
+     */
+    public int attach(String atmId) {
+        byte[] bytes = atmId.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_ATM_ID_BYTES) {
+            throw new IllegalArgumentException("ATM id " + atmId + " is longer than " + MAX_ATM_ID_BYTES + " bytes");
+        }
+        int tag;
+        long end;
+        appendLock.lock();
+        try {
+            Integer existing = tagsByAtmId.get(atmId);
+            if (existing != null) {
+                return existing;
+            }
+            tag = ledgersByTag.size();
+            int offset = reserveSlot();
+            putAttach(buffer, offset, segmentBase + offset / RECORD_SIZE, tag, bytes, System.currentTimeMillis());
+            ledgersByTag.add(new Ledger(atmId));
+            tagsByAtmId.put(atmId, tag);
+            end = nextSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(end);
+        return tag;
+    }
+
+    /**
+     * True if the ATM has an ATTACH record, i.e. it already has history in this journal.
+     */
+    public boolean isAttached(String atmId) {
+        appendLock.lock();
+        try {
+            return tagsByAtmId.containsKey(atmId);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record for an attached ATM and waits until it is on disk.
+     *
+     * @param atmTag Tag returned by attach
+     * @return The record as journaled, with its sequence and timestamp
+     * @throws IllegalStateException if the segment is full and the checkpoint would not fit in a new one
+     */
+    public JournalRecord append(int atmTag, JournalRecordType type, long reservationId, int[] counts) {
+        JournalRecord record;
+        long end;
+        appendLock.lock();
+        try {
+            if (atmTag < 0 || atmTag >= ledgersByTag.size()) {
+                throw new IllegalArgumentException("Unknown ATM tag " + atmTag);
+            }
+            int offset = reserveSlot();
+            Ledger ledger = ledgersByTag.get(atmTag);
+            record = new JournalRecord(ledger.atmId, type, segmentBase + offset / RECORD_SIZE, reservationId,
+                    System.currentTimeMillis(), counts);
+            put(buffer, offset, record.getSequence(), type, atmTag, reservationId, record.getTimestamp(), counts);
+            ledger.apply(record);
+            end = nextSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(end);
+        return record;
+    }
+
+    /**
+     * Claims the next slot, rotating to a new segment if the live one is full; the caller fills the
+     * slot while still holding appendLock.
+     */
+    private int reserveSlot() {
+        if ((nextSequence - segmentBase + 1) * RECORD_SIZE > buffer.capacity()) {
+            rotate();
+        }
+        int offset = (int) ((nextSequence - segmentBase) * RECORD_SIZE);
+        nextSequence++;
+        return offset;
+    }
+
+    private void put(MappedByteBuffer target, int offset, long sequence, JournalRecordType type, int atmTag,
+                     long reservationId, long timestamp, int[] counts) {
+        for (int i = 0; i < DENOMINATIONS; i++) {
+            target.putInt(offset + HEADER_SIZE + 4 * i, counts[i]);
+        }
+        seal(target, offset, sequence, type, atmTag, reservationId, timestamp);
+    }
+
+    private void putAttach(MappedByteBuffer target, int offset, long sequence, int atmTag, byte[] atmId,
+                           long timestamp) {
+        target.put(offset + HEADER_SIZE, (byte) atmId.length);
+        target.put(offset + HEADER_SIZE + 1, atmId);
+        seal(target, offset, sequence, JournalRecordType.ATTACH, atmTag, 0, timestamp);
+    }
+
+    private void seal(MappedByteBuffer target, int offset, long sequence, JournalRecordType type, int atmTag,
+                      long reservationId, long timestamp) {
+        target.put(offset + 4, type.getCode());
+        target.putLong(offset + 8, sequence);
+        target.putLong(offset + 16, reservationId);
+        target.putLong(offset + 24, timestamp);
+        target.putInt(offset + 32, atmTag);
+        // Checksum last: a record whose body is torn never validates
+        target.putInt(offset, checksum(target, offset, appendCrc));
+    }
+
+    /**
+     * Starts a new segment with a checkpoint of every ATM and deletes the full one. The checkpoint
+     * is written to a temporary file and forced before it is renamed into place, so a crash leaves
+     * either the old segment or a complete new one as the newest. Once renamed, it covers every
+     * record of the old segment, forced or not. Called with appendLock held; the ledgers are not
+     * touched, as the checkpoint only restates them.
+     */
+    private void rotate() {
+        int checkpointRecords = 3 * ledgersByTag.size();
+        for (Ledger ledger : ledgersByTag) {
+            checkpointRecords += ledger.pending.size();
+        }
+        if (checkpointRecords >= segmentRecords) {
+            throw new IllegalStateException("Journal checkpoint of " + checkpointRecords
+                    + " records does not fit in a segment of " + segmentRecords);
+        }
+        long base = nextSequence;
+        Path segment = segmentPath(directory, base);
+        Path temp = directory.resolve(segment.getFileName() + TEMP_SUFFIX);
+        FileChannel next = null;
+        MappedByteBuffer target;
+        int offset = 0;
+        try {
+            next = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            target = next.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE);
+            long timestamp = System.currentTimeMillis();
+            for (int tag = 0; tag < ledgersByTag.size(); tag++, offset += RECORD_SIZE) {
+                putAttach(target, offset, base + tag, tag, ledgersByTag.get(tag).atmId.getBytes(StandardCharsets.UTF_8),
+                        timestamp);
+            }
+            for (int tag = 0; tag < ledgersByTag.size(); tag++) {
+                Ledger ledger = ledgersByTag.get(tag);
+                put(target, offset, base + offset / RECORD_SIZE, JournalRecordType.CHECKPOINT, tag,
+                        ledger.lastReservationId, timestamp, ledger.held());
+                offset += RECORD_SIZE;
+                put(target, offset, base + offset / RECORD_SIZE, JournalRecordType.CHECKPOINT_DISPENSED, tag,
+                        0, timestamp, ledger.dispensed);
+                offset += RECORD_SIZE;
+                for (JournalRecord reservation : ledger.pending.values()) {
+                    put(target, offset, base + offset / RECORD_SIZE, JournalRecordType.RESERVE, tag,
+                            reservation.getReservationId(), reservation.getTimestamp(),
+                            CashSnapshot.toCounts(reservation.getNotes()));
+                    offset += RECORD_SIZE;
+                }
+            }
+            target.force(0, offset);
+            Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+        } catch (IOException e) {
+            // The full segment is still the newest complete one; the next append retries
+            closeQuietly(next);
+            try {
+                Files.deleteIfExists(temp);
+                Files.deleteIfExists(segment);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException(e);
+        }
+
+        FileChannel previous = channel;
+        Path previousSegment = segmentPath(directory, segmentBase);
+        channel = next;
+        buffer = target;
+        segmentBase = base;
+        nextSequence = base + offset / RECORD_SIZE;
+        checkpointedThrough = nextSequence;
+        checkpointCount++;
+        // A sync still forcing the old mapping is unaffected; its pages stay mapped until it is collected
+        closeQuietly(previous);
+        try {
+            Files.delete(previousSegment);
+        } catch (IOException e) {
+            // Superseded by the new checkpoint either way; open deletes it if it is still there
+        }
+    }
+
+    private void forceDirectory() throws IOException {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to read or write through it
+        }
+    }
+
+    /**
+     * Blocks until every record before sequence end is on disk, forcing it if no other session is
+     * already doing so.
+     */
+    private void awaitDurable(long end) {
+        syncLock.lock();
+        try {
+            while (durableSequence < end) {
+                if (syncInProgress) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncInProgress = true;
+                long from;
+                long to;
+                long base;
+                MappedByteBuffer target;
+                appendLock.lock();
+                try {
+                    // Records before the last checkpoint are on disk through it, even if they were never forced
+                    from = Math.max(durableSequence, checkpointedThrough);
+                    to = nextSequence;
+                    base = segmentBase;
+                    target = buffer;
+                } finally {
+                    appendLock.unlock();
+                }
+
+                syncLock.unlock();
+                boolean forced = false;
+                try {
+                    if (to > from) {
+                        target.force((int) ((from - base) * RECORD_SIZE), (int) ((to - from) * RECORD_SIZE));
+                    }
+                    forced = true;
+                } finally {
+                    syncLock.lock();
+                    if (forced) {
+                        durableSequence = Math.max(durableSequence, to);
+                        if (to > from) {
+                            syncCount++;
+                        }
+                    }
+                    syncInProgress = false;
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * One ATM's counts as replayed from its records, without scanning the journal.
+     *
+     * @return The journaled cash, or null if the ATM is not attached
+     */
+    public JournaledCash getJournaledCash(String atmId) {
+        appendLock.lock();
+        try {
+            Integer tag = tagsByAtmId.get(atmId);
+            return tag == null ? null : ledgersByTag.get(tag).toJournaledCash();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Every attached ATM's counts as replayed from its records, in the order they attached.
+     */
+    public List<JournaledCash> getJournaledCash() {
+        appendLock.lock();
+        try {
+            List<JournaledCash> cash = new ArrayList<>(ledgersByTag.size());
+            for (Ledger ledger : ledgersByTag) {
+                cash.add(ledger.toJournaledCash());
+            }
+            return cash;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Decodes every cash record (all but ATTACH) of every ATM in the live segment, in journal order.
+     * Earlier history is summarised by the CHECKPOINT records the segment starts with.
+     */
+    public List<JournalRecord> readAll() {
+        return read(null);
+    }
+
+    /**
+     * Decodes the cash records of one ATM in the live segment, in journal order.
+     */
+    public List<JournalRecord> readAll(String atmId) {
+        return read(atmId);
+    }
+
+    private List<JournalRecord> read(String atmId) {
+        int end;
+        MappedByteBuffer view;
+        List<Ledger> ledgers;
+        int atmTag = -1;
+        appendLock.lock();
+        try {
+            if (atmId != null) {
+                Integer tag = tagsByAtmId.get(atmId);
+                if (tag == null) {
+                    return new ArrayList<>();
+                }
+                atmTag = tag;
+            }
+            end = (int) ((nextSequence - segmentBase) * RECORD_SIZE);
+            view = buffer;
+            ledgers = new ArrayList<>(ledgersByTag);
+        } finally {
+            appendLock.unlock();
+        }
+        List<JournalRecord> records = new ArrayList<>();
+        for (int offset = 0; offset < end; offset += RECORD_SIZE) {
+            JournalRecordType type = JournalRecordType.fromCode(view.get(offset + 4));
+            if (type == JournalRecordType.ATTACH || (atmTag >= 0 && view.getInt(offset + 32) != atmTag)) {
+                continue;
+            }
+            records.add(decode(view, offset, type, ledgers));
+        }
+        return records;
+    }
+
+    /** Records appended over the journal's life, i.e. the sequence the next record will get. */
+    public long getRecordCount() {
+        appendLock.lock();
+        try {
+            return nextSequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** Number of forces so far; compare with getRecordCount to see how well commits are grouped. */
+    public long getSyncCount() {
+        syncLock.lock();
+        try {
+            return syncCount;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /** Number of rotations this journal has made since it was opened. */
+    public long getCheckpointCount() {
+        appendLock.lock();
+        try {
+            return checkpointCount;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            channel.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package repository;
+
+import enums.Denomination;
+import models.CashSnapshot;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Notes set aside in a CashDao for one withdrawal.
+ * A reservation is settled exactly once: committed when the dispenser hands the notes out,
+ * or rolled back when the dispense fails. The state flip is atomic, so a late retry or a
+ * racing fault handler cannot apply the same reservation twice. It can only be settled by the
+ * CashDao that issued it, so one ATM's reservation cannot move another ATM's cash.
+ */
+public class CashReservation {
+    private static final int PENDING = 0;
+    private static final int COMMITTED = 1;
+    private static final int ROLLED_BACK = 2;
+
+    private final CashDao owner;
+    private final long reservationId;
+    private final int[] notes;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    CashReservation(CashDao owner, long reservationId, int[] notes) {
+        this.owner = owner;
+        this.reservationId = reservationId;
+        this.notes = notes.clone();
+    }
+
+    public long getReservationId() {
+        return reservationId;
+    }
+
+    public int getNotes(Denomination deno) {
+        return notes[deno.ordinal()];
+    }
+
+    public Map<Denomination, Integer> getNotes() {
+        return CashSnapshot.toMap(notes);
+    }
+
+    /** Face value of the reserved notes. */
+    public long getAmount() {
+        long amount = 0;
+        for (Denomination deno : Denomination.values()) {
+            amount += (long) deno.getValue() * notes[deno.ordinal()];
+        }
+        return amount;
+    }
+
+    boolean isOwnedBy(CashDao cashDao) {
+        return owner == cashDao;
+    }
+
+    /** Package-private view of the counts for CashDao; callers must not modify it. */
+    int[] counts() {
+        return notes;
+    }
+
+    public boolean isPending() {
+        return state.get() == PENDING;
+    }
+
+    public boolean isCommitted() {
+        return state.get() == COMMITTED;
+    }
+
+    public boolean isRolledBack() {
+        return state.get() == ROLLED_BACK;
+    }
+
+    boolean markCommitted() {
+        return state.compareAndSet(PENDING, COMMITTED);
+    }
+
+    boolean markRolledBack() {
+        return state.compareAndSet(PENDING, ROLLED_BACK);
+    }
+}
@@ -0,0 +1,114 @@
+package services;
+
+import constants.AtmConstants;
+import enums.Denomination;
+import interfaces.ICashDispenser;
+import repository.CashDao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Hosts many independent ATMs in one JVM, e.g. for a switch-side simulator or a monitoring host.
+ *
+ * ATMs are routed by id through a ConcurrentHashMap; each one owns its CashDao, planner, session
+ * lock and counters, so nothing is shared between machines. Customer sessions run on virtual
+ * threads: thousands of sessions can wait for a busy ATM without tying up platform threads, and
+ * a session queued on one ATM never holds anything another ATM needs.
+ */
+public class AtmFleet implements AutoCloseable {
+
+    private final Map<String, AtmMachineService> atms = new ConcurrentHashMap<>();
+    private final ExecutorService sessionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Adds an ATM with its initial cash.
+     *
+     * @throws IllegalStateException if an ATM with this id is already registered
+     */
+    public AtmMachineService register(String atmId, Map<Denomination, Integer> cash, ICashDispenser cashDispenser) {
+        return register(atmId, new CashDao(cash), cashDispenser);
+    }
+
+    /**
+     * Adds an ATM with existing cash, e.g. a journaled or recovered CashDao.
+     *
+     * @throws IllegalStateException if an ATM with this id is already registered
+     */
+    public AtmMachineService register(String atmId, CashDao cashDao, ICashDispenser cashDispenser) {
+        return register(atmId, AtmConstants.DEFAULT_REGION, cashDao, cashDispenser);
+    }
+
+    /**
+     * Adds an ATM in a settlement region.
+     *
+     * @throws IllegalStateException if an ATM with this id is already registered
+     */
+    public AtmMachineService register(String atmId, String region, CashDao cashDao, ICashDispenser cashDispenser) {
+        AtmMachineService atm = new AtmMachineService(atmId, region, cashDao, cashDispenser);
+        if (atms.putIfAbsent(atmId, atm) != null) {
+            throw new IllegalStateException("ATM " + atmId + " is already registered");
+        }
+        return atm;
+    }
+
+    public AtmMachineService remove(String atmId) {
+        return atms.remove(atmId);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no ATM has this id
+     */
+    public AtmMachineService getAtm(String atmId) {
+        AtmMachineService atm = atms.get(atmId);
+        if (atm == null) {
+            throw new IllegalArgumentException("Unknown ATM " + atmId);
+        }
+        return atm;
+    }
+
+    public Collection<AtmMachineService> getAtms() {
+        return atms.values();
+    }
+
+    public int size() {
+        return atms.size();
+    }
+
+    /**
+     * Starts a customer session on the given ATM in its own virtual thread.
+     * The session waits if that ATM is serving someone else; other ATMs are unaffected.
+     */
+    public <T> CompletableFuture<T> startSession(String atmId, Function<AtmMachineService, T> session) {
+        AtmMachineService atm = getAtm(atmId);
+        return CompletableFuture.supplyAsync(() -> atm.runSession(session), sessionExecutor);
+    }
+
+    /**
+     * ATMs currently serving a customer.
+     */
+    public List<String> getBusyAtmIds() {
+        List<String> busy = new ArrayList<>();
+        for (AtmMachineService atm : atms.values()) {
+            if (atm.isBusy()) {
+                busy.add(atm.getAtmId());
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * Stops accepting sessions and waits for the running ones to finish.
+     */
+    @Override
+    public void close() {
+        sessionExecutor.close();
+    }
+}
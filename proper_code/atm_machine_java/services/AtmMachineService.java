@@ -1,14 +1,224 @@
 package services;
 
+import constants.AtmConstants;
+import interfaces.ICashDispenser;
+import models.Receipt;
+import repository.CashDao;
+import repository.CashReservation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * One ATM: its cash, dispense planner, dispenser hardware, session slot and counters.
+ * Instances are independent, so a host can run many of them side by side (see AtmFleet).
+ *
+ * A physical ATM serves one customer at a time, so sessions on the same ATM queue on its own
+ * ReentrantLock; sessions on different ATMs never share a lock. ReentrantLock (not synchronized)
+ * lets waiting virtual threads unmount instead of pinning their carrier thread.
+ *
+ * Each withdrawal also takes the ATM's cashLock twice: around its reservation and around its commit
+ * or rollback, never across the dispense itself. Its notes are counted as in flight in between, so
+ * a reader under that lock (see SettlementService) sees the cash, the receipts issued and the notes
+ * being dispensed at the same point, and waits for a journal write at most, not for the hardware.
+ */
 public class AtmMachineService {
-    private static final AtmMachineService instance = new AtmMachineService();
+    private final String atmId;
+    private final String region;
+    private final CashDao cashDao;
+    private final DispensePlanner dispensePlanner;
+    private final ICashDispenser cashDispenser;
+    private final ReentrantLock sessionLock = new ReentrantLock(true);
+    private final AtomicBoolean sessionLineOpen = new AtomicBoolean();
+    private final ReentrantLock cashLock = new ReentrantLock();
+    /** Face value reserved by withdrawals that are dispensing; guarded by cashLock. */
+    private long inFlightAmount;
+
+    private final LongAdder sessionsServed = new LongAdder();
+    private final LongAdder withdrawals = new LongAdder();
+    private final LongAdder failedWithdrawals = new LongAdder();
+    private final LongAdder dispensedAmount = new LongAdder();
+    private final long openingDispensedAmount;
 
-    private AtmMachineService() {
+    public AtmMachineService(String atmId, CashDao cashDao, ICashDispenser cashDispenser) {
+        this(atmId, AtmConstants.DEFAULT_REGION, cashDao, cashDispenser);
     }
 
-    public static AtmMachineService getInstance() {
-        return instance;
+    public AtmMachineService(String atmId, String region, CashDao cashDao, ICashDispenser cashDispenser) {
+        this.atmId = atmId;
+        this.region = region;
+        this.cashDao = cashDao;
+        this.dispensePlanner = new DispensePlanner(cashDao);
+        this.cashDispenser = cashDispenser;
+        this.openingDispensedAmount = cashDao.getSnapshot().getDispensedAmount();
+    }
+
+    /**
+     * Runs one customer session with exclusive use of this ATM.
+     * Blocks (parks, on a virtual thread) while another customer is using the machine.
+     */
+    public <T> T runSession(Function<AtmMachineService, T> session) {
+        sessionLock.lock();
+        try {
+            return session.apply(this);
+        } finally {
+            sessionsServed.increment();
+            sessionLock.unlock();
+        }
+    }
+
+    /**
+     * Reserves, dispenses and settles the notes for an amount.
+     * A dispenser fault rolls the reservation back, so no notes are lost from the books.
+     *
+     * @return The receipt, built from the DISPENSE journal record, or null if the amount could not be dispensed
+     */
+    public Receipt withdraw(int amount) {
+        CashReservation reservation;
+        cashLock.lock();
+        try {
+            reservation = dispensePlanner.reserve(amount);
+            if (reservation == null) {
+                failedWithdrawals.increment();
+                return null;
+            }
+            inFlightAmount += reservation.getAmount();
+        } finally {
+            cashLock.unlock();
+        }
+
+        boolean dispensed;
+        try {
+            dispensed = cashDispenser.dispense(reservation.getNotes());
+        } catch (RuntimeException e) {
+            dispensed = false;
+        }
+
+        cashLock.lock();
+        try {
+            inFlightAmount -= reservation.getAmount();
+            if (!dispensed) {
+                cashDao.rollback(reservation);
+                failedWithdrawals.increment();
+                return null;
+            }
+            Receipt receipt = Receipt.from(atmId, cashDao.commit(reservation));
+            withdrawals.increment();
+            dispensedAmount.add(receipt.getAmount());
+            return receipt;
+        } finally {
+            cashLock.unlock();
+        }
     }
-}
 
+    /**
+     * Runs the reader while no withdrawal is reserving or settling on this ATM; withdrawals that
+     * are dispensing are reported by getInFlightAmount. Blocks for at most one reservation or
+     * commit. Inside a ForkJoinPool the wait is a managed block, so the pool can keep its other
+     * workers busy meanwhile.
+     */
+    <T> T readBetweenWithdrawals(Function<AtmMachineService, T> reader) {
+        CashLocker locker = new CashLocker();
+        try {
+            ForkJoinPool.managedBlock(locker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to read ATM " + atmId, e);
+        }
+        try {
+            return reader.apply(this);
+        } finally {
+            cashLock.unlock();
+        }
+    }
+
+    /**
+     * Takes cashLock for readBetweenWithdrawals, exactly once however often the pool polls it.
+     */
+    private final class CashLocker implements ForkJoinPool.ManagedBlocker {
+        private boolean locked;
+
+        @Override
+        public boolean block() {
+            if (!locked) {
+                cashLock.lock();
+                locked = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (!locked) {
+                locked = cashLock.tryLock();
+            }
+            return locked;
+        }
+    }
 
+    /**
+     * Claims the ATM's card slot for an AtmSessionMachine session; only one can be open at a time.
+     *
+     * @return false if another session already holds it
+     */
+    boolean tryOpenSessionLine() {
+        return sessionLineOpen.compareAndSet(false, true);
+    }
+
+    void closeSessionLine() {
+        sessionLineOpen.set(false);
+    }
+
+    public String getAtmId() {
+        return atmId;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public CashDao getCashDao() {
+        return cashDao;
+    }
+
+    public boolean isBusy() {
+        return sessionLock.isLocked();
+    }
+
+    public long getSessionsServed() {
+        return sessionsServed.sum();
+    }
+
+    public long getWithdrawals() {
+        return withdrawals.sum();
+    }
+
+    public long getFailedWithdrawals() {
+        return failedWithdrawals.sum();
+    }
+
+    /**
+     * Amount on the receipts this service has issued.
+     */
+    public long getDispensedAmount() {
+        return dispensedAmount.sum();
+    }
+
+    /**
+     * Face value reserved by withdrawals that are between reservation and commit, i.e. at the
+     * dispenser. Only meaningful inside readBetweenWithdrawals.
+     */
+    long getInFlightAmount() {
+        return inFlightAmount;
+    }
+
+    /**
+     * Amount the CashDao had already dispensed when this service took it over, e.g. a recovered ATM's history.
+     */
+    public long getOpeningDispensedAmount() {
+        return openingDispensedAmount;
+    }
+}
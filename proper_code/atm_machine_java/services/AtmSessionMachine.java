@@ -0,0 +1,335 @@
+package services;
+
+import enums.AuthResult;
+import enums.MachineState;
+import enums.SessionEvent;
+import models.Receipt;
+import repository.AccountDao;
+import repository.CardDao;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Customer sessions for every ATM on a host, driven by one transition table.
+ *
+ *   READY -> CARD_INSERTED -> ENTER_ATM_PIN -> ENTER_AMOUNT_TO_WITHDRAW -> DISPATCH_CASH -> GENERATE_RECEIPT -> READY
+ *
+ * The next state is TRANSITIONS[state][event], so firing an event is an array lookup plus a
+ * compare-and-set on the session's status word: no state objects, no allocation. The word packs
+ * the state into its low byte and the deadline for leaving that state above it, so a transition
+ * and its new deadline are published by the same CAS. Sessions are slots in primitive columns
+ * (status, card, amount, ATM, free list), about 28 bytes each (measured 28.0 at 1M sessions), so
+ * one host can hold 100k concurrent sessions in under 3 MB.
+ *
+ * Each session is driven by one customer thread, while expireTimedOutSessions may run concurrently
+ * and move a session that sat in a state past its timeout back to READY. Both go through the same
+ * CAS, so whichever comes second sees the word has moved and backs off.
+ *
+ * An ATM has at most one session line at a time, and the withdrawal itself runs through the ATM's
+ * runSession, so it is serialized with any other use of the machine (e.g. AtmFleet sessions).
+ */
+public class AtmSessionMachine implements AutoCloseable {
+
+    public static final int NO_SESSION = -1;
+
+    private static final MachineState[] STATES = MachineState.values();
+    private static final byte INVALID = -1;
+    private static final byte[][] TRANSITIONS = new byte[STATES.length][SessionEvent.values().length];
+    private static final VarHandle STATUS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int STATE_BITS = 8;
+    private static final long NO_DEADLINE = Long.MAX_VALUE >>> STATE_BITS;
+
+    static {
+        for (byte[] row : TRANSITIONS) {
+            Arrays.fill(row, INVALID);
+        }
+        transition(MachineState.READY, SessionEvent.INSERT_CARD, MachineState.CARD_INSERTED);
+        transition(MachineState.CARD_INSERTED, SessionEvent.CARD_ACCEPTED, MachineState.ENTER_ATM_PIN);
+        transition(MachineState.ENTER_ATM_PIN, SessionEvent.PIN_ACCEPTED, MachineState.ENTER_AMOUNT_TO_WITHDRAW);
+        transition(MachineState.ENTER_ATM_PIN, SessionEvent.PIN_REJECTED, MachineState.ENTER_ATM_PIN);
+        transition(MachineState.ENTER_AMOUNT_TO_WITHDRAW, SessionEvent.AMOUNT_ENTERED, MachineState.DISPATCH_CASH);
+        transition(MachineState.DISPATCH_CASH, SessionEvent.CASH_DISPENSED, MachineState.GENERATE_RECEIPT);
+        transition(MachineState.DISPATCH_CASH, SessionEvent.DISPENSE_FAILED, MachineState.ENTER_AMOUNT_TO_WITHDRAW);
+        transition(MachineState.GENERATE_RECEIPT, SessionEvent.RECEIPT_PRINTED, MachineState.READY);
+        for (MachineState state : STATES) {
+            if (state != MachineState.READY && state != MachineState.DISPATCH_CASH) {
+                // Notes may already be moving in DISPATCH_CASH, so it can be neither cancelled nor timed out
+                transition(state, SessionEvent.CANCEL, MachineState.READY);
+                transition(state, SessionEvent.TIMEOUT, MachineState.READY);
+            }
+        }
+    }
+
+    private static void transition(MachineState from, SessionEvent event, MachineState to) {
+        TRANSITIONS[from.ordinal()][event.ordinal()] = (byte) to.ordinal();
+    }
+
+    private final CardDao cardDao;
+    private final AccountDao accountDao;
+    private final CardAuthService cardAuthService;
+
+    private final long[] statuses;
+    private final long[] pans;
+    private final int[] amounts;
+    private final AtmMachineService[] atms;
+
+    private final int[] freeSlots;
+    private int freeCount;
+    private volatile int highWater;
+
+    private final LongAdder completedSessions = new LongAdder();
+    private final LongAdder timedOutSessions = new LongAdder();
+    private volatile Thread timeoutSweeper;
+
+    public AtmSessionMachine(int maxSessions, CardDao cardDao, AccountDao accountDao, CardAuthService cardAuthService) {
+        this.cardDao = cardDao;
+        this.accountDao = accountDao;
+        this.cardAuthService = cardAuthService;
+        this.statuses = new long[maxSessions];
+        this.pans = new long[maxSessions];
+        this.amounts = new int[maxSessions];
+        this.atms = new AtmMachineService[maxSessions];
+        this.freeSlots = new int[maxSessions];
+        for (int i = 0; i < maxSessions; i++) {
+            freeSlots[i] = maxSessions - 1 - i;
+        }
+        this.freeCount = maxSessions;
+    }
+
+    private static long status(int state, long deadline) {
+        return deadline << STATE_BITS | state;
+    }
+
+    private static int stateOf(long status) {
+        return (int) (status & ((1 << STATE_BITS) - 1));
+    }
+
+    private static long deadlineOf(long status) {
+        return status >>> STATE_BITS;
+    }
+
+    /**
+     * Opens a session line on an ATM, waiting in READY for a card.
+     *
+     * @return The session id, or NO_SESSION if every slot is taken or the ATM already has an open session
+     */
+    public int openSession(AtmMachineService atm) {
+        if (!atm.tryOpenSessionLine()) {
+            return NO_SESSION;
+        }
+        int session;
+        synchronized (freeSlots) {
+            if (freeCount == 0) {
+                atm.closeSessionLine();
+                return NO_SESSION;
+            }
+            session = freeSlots[--freeCount];
+            if (session >= highWater) {
+                highWater = session + 1;
+            }
+            atms[session] = atm;
+        }
+        STATUS.setRelease(statuses, session, status(MachineState.READY.ordinal(), NO_DEADLINE));
+        return session;
+    }
+
+    /**
+     * Frees the slot. The session must be back in READY.
+     *
+     * @throws IllegalStateException if a customer is still in the session
+     */
+    public void closeSession(int session) {
+        if (getState(session) != MachineState.READY) {
+            throw new IllegalStateException("Session " + session + " is busy in " + getState(session));
+        }
+        AtmMachineService atm = atms[session];
+        synchronized (freeSlots) {
+            atms[session] = null;
+            freeSlots[freeCount++] = session;
+        }
+        atm.closeSessionLine();
+    }
+
+    /**
+     * Applies an event if the table allows it from the session's current state.
+     *
+     * @return false if the event is not valid now (or the session moved on concurrently)
+     */
+    public boolean fire(int session, SessionEvent event) {
+        long current = (long) STATUS.getAcquire(statuses, session);
+        byte to = TRANSITIONS[stateOf(current)][event.ordinal()];
+        if (to == INVALID) {
+            return false;
+        }
+        int timeout = STATES[to].getTimeoutMillis();
+        long deadline = timeout == 0 ? NO_DEADLINE : System.currentTimeMillis() + timeout;
+        // The deadline only becomes visible together with the state it belongs to
+        return STATUS.compareAndSet(statuses, session, current, status(to, deadline));
+    }
+
+    public MachineState getState(int session) {
+        return STATES[stateOf((long) STATUS.getAcquire(statuses, session))];
+    }
+
+    /**
+     * Reads the card; unknown cards are ejected straight away.
+     *
+     * @return false if the ATM was not ready or the card is not issued
+     */
+    public boolean insertCard(int session, long pan) {
+        if (getState(session) != MachineState.READY) {
+            return false;
+        }
+        pans[session] = pan;
+        if (!fire(session, SessionEvent.INSERT_CARD)) {
+            return false;
+        }
+        if (!cardDao.containsCard(pan)) {
+            fire(session, SessionEvent.CANCEL);
+            return false;
+        }
+        return fire(session, SessionEvent.CARD_ACCEPTED);
+    }
+
+    /**
+     * Checks the PIN. A wrong PIN lets the customer retry; a locked card is ejected.
+     *
+     * @return The authentication result, or null if the session is not waiting for a PIN
+     */
+    public AuthResult submitPin(int session, String pin) {
+        if (getState(session) != MachineState.ENTER_ATM_PIN) {
+            return null;
+        }
+        AuthResult result = cardAuthService.authenticate(pans[session], pin);
+        SessionEvent event = switch (result) {
+            case APPROVED -> SessionEvent.PIN_ACCEPTED;
+            case WRONG_PIN -> SessionEvent.PIN_REJECTED;
+            case LOCKED, UNKNOWN_CARD -> SessionEvent.CANCEL;
+        };
+        return fire(session, event) ? result : null;
+    }
+
+    /**
+     * Debits the account and dispenses. If the balance is short the customer can enter another
+     * amount; if the ATM cannot dispense, the account is credited back and the same happens.
+     *
+     * @return The receipt, or null if nothing was dispensed
+     * @throws IllegalArgumentException if no ATM could pay the amount (see DispensePlanner.isWithdrawable);
+     *                                  the account is not touched and the session still waits for an amount
+     */
+    public Receipt submitAmount(int session, int amount) {
+        if (getState(session) != MachineState.ENTER_AMOUNT_TO_WITHDRAW) {
+            return null;
+        }
+        if (!DispensePlanner.isWithdrawable(amount)) {
+            throw new IllegalArgumentException("Cannot withdraw " + amount);
+        }
+        long accountNumber = cardDao.getAccountNumber(pans[session]);
+        if (!accountDao.debit(accountNumber, amount)) {
+            return null;
+        }
+        amounts[session] = amount;
+        if (!fire(session, SessionEvent.AMOUNT_ENTERED)) {
+            accountDao.credit(accountNumber, amount);
+            return null;
+        }
+
+        Receipt receipt;
+        try {
+            // Through the ATM's session path, so it queues behind any other use of the machine
+            receipt = atms[session].runSession(atm -> atm.withdraw(amount));
+        } catch (RuntimeException e) {
+            receipt = null;
+        }
+        if (receipt == null) {
+            accountDao.credit(accountNumber, amount);
+            fire(session, SessionEvent.DISPENSE_FAILED);
+            return null;
+        }
+        fire(session, SessionEvent.CASH_DISPENSED);
+        return receipt;
+    }
+
+    /**
+     * Ends the customer's session after the receipt; the ATM is READY for the next card.
+     */
+    public boolean printReceipt(int session) {
+        if (!fire(session, SessionEvent.RECEIPT_PRINTED)) {
+            return false;
+        }
+        completedSessions.increment();
+        return true;
+    }
+
+    public boolean cancel(int session) {
+        return fire(session, SessionEvent.CANCEL);
+    }
+
+    /**
+     * Moves every session that has outstayed its state's timeout back to READY.
+     *
+     * @return Number of sessions timed out
+     */
+    public int expireTimedOutSessions(long now) {
+        int expired = 0;
+        int end = highWater;
+        for (int session = 0; session < end; session++) {
+            long current = (long) STATUS.getAcquire(statuses, session);
+            byte to = TRANSITIONS[stateOf(current)][SessionEvent.TIMEOUT.ordinal()];
+            if (deadlineOf(current) > now || to == INVALID) {
+                continue;
+            }
+            if (STATUS.compareAndSet(statuses, session, current, status(to, NO_DEADLINE))) {
+                expired++;
+            }
+        }
+        timedOutSessions.add(expired);
+        return expired;
+    }
+
+    /**
+     * Runs expireTimedOutSessions on a daemon thread every periodMillis.
+     */
+    public synchronized void startTimeoutSweeper(long periodMillis) {
+        if (timeoutSweeper != null) {
+            throw new IllegalStateException("Timeout sweeper already started");
+        }
+        timeoutSweeper = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                expireTimedOutSessions(System.currentTimeMillis());
+            }
+        }, "atm-session-timeouts");
+        timeoutSweeper.setDaemon(true);
+        timeoutSweeper.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (timeoutSweeper != null) {
+            timeoutSweeper.interrupt();
+            timeoutSweeper = null;
+        }
+    }
+
+    public int getOpenSessions() {
+        synchronized (freeSlots) {
+            return statuses.length - freeCount;
+        }
+    }
+
+    public long getCompletedSessions() {
+        return completedSessions.sum();
+    }
+
+    public long getTimedOutSessions() {
+        return timedOutSessions.sum();
+    }
+}
@@ -0,0 +1,68 @@
+package services;
+
+import enums.AuthResult;
+import repository.CardDao;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Authenticates a card and PIN for every ATM on the host.
+ *
+ * Order: unknown card -> lockout -> cached result -> slow PIN hash check in CardDao. Every wrong
+ * PIN, cached or not, counts towards the card's sliding-window lockout; once locked, the cached
+ * result for the card is dropped and even the right PIN is refused until the window slides. The
+ * wrong PIN that locks the card already returns LOCKED, so the caller can retain the card.
+ */
+public class CardAuthService {
+    private final CardDao cardDao;
+    private final PinVerificationCache cache = new PinVerificationCache();
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder storeVerifications = new LongAdder();
+
+    public CardAuthService(CardDao cardDao) {
+        this.cardDao = cardDao;
+    }
+
+    public AuthResult authenticate(long pan, String pin) {
+        long now = System.currentTimeMillis();
+        if (!cardDao.containsCard(pan)) {
+            return AuthResult.UNKNOWN_CARD;
+        }
+        if (cardDao.getLockedUntil(pan, now) > 0) {
+            return AuthResult.LOCKED;
+        }
+
+        Boolean verified = cache.get(pan, pin, now);
+        if (verified != null) {
+            cacheHits.increment();
+        } else {
+            verified = cardDao.verifyPin(pan, pin);
+            storeVerifications.increment();
+            cache.put(pan, pin, verified, now);
+        }
+
+        if (verified) {
+            cardDao.clearPinFailures(pan);
+            return AuthResult.APPROVED;
+        }
+        if (cardDao.recordPinFailure(pan, now) > 0) {
+            cache.invalidate(pan);
+            return AuthResult.LOCKED;
+        }
+        return AuthResult.WRONG_PIN;
+    }
+
+    /** Call after a PIN change so the old PIN is not accepted from the cache. */
+    public void invalidate(long pan) {
+        cache.invalidate(pan);
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getStoreVerifications() {
+        return storeVerifications.sum();
+    }
+}
@@ -0,0 +1,176 @@
+package services;
+
+import enums.Denomination;
+import models.CashSnapshot;
+import repository.CashDao;
+import repository.CashReservation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Decides which notes to dispense for an amount, using the fewest notes the cassettes can supply.
+ *
+ * A greedy largest-note-first loop fails on amounts like 600 with only 500s and 200s loaded, even
+ * though 3 x 200 works. This planner solves bounded change-making exactly with a 0/1 knapsack over
+ * binary-split note counts, so the worst case is O(denominations * log(notes) * amount / unit),
+ * bounded by MAX_WITHDRAWAL_AMOUNT.
+ *
+ * Plans are memoized per amount together with the snapshot's restock epoch. Within an epoch counts
+ * only go down, so a cached plan that is still covered by the current notes is still optimal;
+ * a reload or rollback starts a new epoch and every cached plan is recomputed on next use.
+ */
+public class DispensePlanner {
+
+    public static final int MAX_WITHDRAWAL_AMOUNT = 20_000;
+
+    private static final Denomination[] DENOMINATIONS = Denomination.values();
+    private static final int UNIT = smallestUnit();
+    private static final Map<Denomination, Integer> NO_PLAN = Collections.emptyMap();
+
+    private final CashDao cashDao;
+    private final AtomicReferenceArray<CachedPlan> cache = new AtomicReferenceArray<>(MAX_WITHDRAWAL_AMOUNT / UNIT + 1);
+
+    private static final class CachedPlan {
+        final long restockEpoch;
+        final Map<Denomination, Integer> notes;
+
+        CachedPlan(long restockEpoch, Map<Denomination, Integer> notes) {
+            this.restockEpoch = restockEpoch;
+            this.notes = notes;
+        }
+    }
+
+    public DispensePlanner(CashDao cashDao) {
+        this.cashDao = cashDao;
+    }
+
+    private static int smallestUnit() {
+        int unit = 0;
+        for (Denomination deno : DENOMINATIONS) {
+            unit = gcd(unit, deno.getValue());
+        }
+        return unit;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * True if the amount is a positive multiple of the smallest note, up to MAX_WITHDRAWAL_AMOUNT.
+     * Says nothing about whether the notes are there.
+     */
+    public static boolean isWithdrawable(int amount) {
+        return amount > 0 && amount % UNIT == 0 && amount <= MAX_WITHDRAWAL_AMOUNT;
+    }
+
+    /**
+     * Plans and reserves the notes for a withdrawal. If another session takes notes between planning
+     * and reserving, the plan is recomputed against the newer snapshot.
+     *
+     * @return The reservation, or null if the amount cannot be paid from the current notes
+     * @throws IllegalArgumentException if the amount is not a positive multiple of the smallest note
+     *                                  or exceeds MAX_WITHDRAWAL_AMOUNT
+     */
+    public CashReservation reserve(int amount) {
+        while (true) {
+            CashSnapshot snapshot = cashDao.getSnapshot();
+            Map<Denomination, Integer> notes = plan(amount, snapshot);
+            if (notes == null) {
+                return null;
+            }
+            CashReservation reservation = cashDao.reserve(notes);
+            if (reservation != null) {
+                return reservation;
+            }
+        }
+    }
+
+    /**
+     * Fewest-notes plan for the amount under the given snapshot.
+     *
+     * @return Notes per denomination (unmodifiable), or null if no combination pays the amount
+     */
+    public Map<Denomination, Integer> plan(int amount, CashSnapshot snapshot) {
+        if (!isWithdrawable(amount)) {
+            throw new IllegalArgumentException("Amount must be a positive multiple of " + UNIT
+                    + " up to " + MAX_WITHDRAWAL_AMOUNT);
+        }
+        int slot = amount / UNIT;
+        CachedPlan cached = cache.get(slot);
+        if (cached != null && cached.restockEpoch == snapshot.getRestockEpoch()) {
+            // An infeasible amount stays infeasible while counts only shrink
+            if (cached.notes == NO_PLAN) {
+                return null;
+            }
+            if (snapshot.covers(cached.notes)) {
+                return cached.notes;
+            }
+        }
+
+        Map<Denomination, Integer> notes = solve(slot, snapshot);
+        cache.set(slot, new CachedPlan(snapshot.getRestockEpoch(), notes == null ? NO_PLAN : notes));
+        return notes;
+    }
+
+    /**
+     * 0/1 knapsack over note bundles: each denomination's count is split into bundles of
+     * 1, 2, 4, ... notes so any count up to the available one is a subset of bundles.
+     */
+    private static Map<Denomination, Integer> solve(int target, CashSnapshot snapshot) {
+        int bundleCount = 0;
+        int[] bundleDeno = new int[DENOMINATIONS.length * 32];
+        int[] bundleNotes = new int[DENOMINATIONS.length * 32];
+        for (Denomination deno : DENOMINATIONS) {
+            int weight = deno.getValue() / UNIT;
+            int remaining = Math.min(snapshot.getAvailable(deno), target / weight);
+            for (int size = 1; remaining > 0; size <<= 1) {
+                int taken = Math.min(size, remaining);
+                bundleDeno[bundleCount] = deno.ordinal();
+                bundleNotes[bundleCount] = taken;
+                bundleCount++;
+                remaining -= taken;
+            }
+        }
+
+        final int unreachable = Integer.MAX_VALUE;
+        int[] fewestNotes = new int[target + 1];
+        Arrays.fill(fewestNotes, unreachable);
+        fewestNotes[0] = 0;
+        boolean[][] taken = new boolean[bundleCount][target + 1];
+        for (int b = 0; b < bundleCount; b++) {
+            int weight = bundleNotes[b] * (DENOMINATIONS[bundleDeno[b]].getValue() / UNIT);
+            for (int v = target; v >= weight; v--) {
+                int previous = fewestNotes[v - weight];
+                if (previous != unreachable && previous + bundleNotes[b] < fewestNotes[v]) {
+                    fewestNotes[v] = previous + bundleNotes[b];
+                    taken[b][v] = true;
+                }
+            }
+        }
+        if (fewestNotes[target] == unreachable) {
+            return null;
+        }
+
+        int[] counts = new int[DENOMINATIONS.length];
+        int v = target;
+        for (int b = bundleCount - 1; b >= 0; b--) {
+            if (taken[b][v]) {
+                counts[bundleDeno[b]] += bundleNotes[b];
+                v -= bundleNotes[b] * (DENOMINATIONS[bundleDeno[b]].getValue() / UNIT);
+            }
+        }
+
+        Map<Denomination, Integer> notes = new EnumMap<>(Denomination.class);
+        for (Denomination deno : DENOMINATIONS) {
+            if (counts[deno.ordinal()] > 0) {
+                notes.put(deno, counts[deno.ordinal()]);
+            }
+        }
+        return Collections.unmodifiableMap(notes);
+    }
+}
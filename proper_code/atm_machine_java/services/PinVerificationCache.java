@@ -0,0 +1,84 @@
+package services;
+
+import constants.AtmConstants;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache of recent PIN verification results, so a customer retrying a balance enquiry or a
+ * second withdrawal does not pay for another PBKDF2 run.
+ *
+ * Direct-mapped by PAN: each card has one slot (shared with whichever PANs hash alike), holding the
+ * last result for that card. The size is fixed at PIN_CACHE_SIZE, entries expire after
+ * PIN_CACHE_TTL_MILLIS, and a PAN can be invalidated in O(1). Reads and writes are a single
+ * volatile array access; no locks.
+ *
+ * The PIN itself is never kept, only a 64-bit digest keyed by a per-process random secret, which is
+ * enough to tell "same PIN as last time" and useless outside this JVM.
+ */
+public class PinVerificationCache {
+
+    private static final class Entry {
+        final long pan;
+        final long pinDigest;
+        final boolean verified;
+        final long expiresAt;
+
+        Entry(long pan, long pinDigest, boolean verified, long expiresAt) {
+            this.pan = pan;
+            this.pinDigest = pinDigest;
+            this.verified = verified;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long secret = new SecureRandom().nextLong();
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(AtmConstants.PIN_CACHE_SIZE);
+    private final int mask = AtmConstants.PIN_CACHE_SIZE - 1;
+
+    /**
+     * @return The cached result, or null if there is none or it expired
+     */
+    public Boolean get(long pan, String pin, long now) {
+        Entry entry = entries.get(slot(pan));
+        if (entry == null || entry.pan != pan || entry.expiresAt <= now || entry.pinDigest != digest(pan, pin)) {
+            return null;
+        }
+        return entry.verified;
+    }
+
+    public void put(long pan, String pin, boolean verified, long now) {
+        entries.set(slot(pan), new Entry(pan, digest(pan, pin), verified, now + AtmConstants.PIN_CACHE_TTL_MILLIS));
+    }
+
+    /** Drops the card's entry, e.g. when it gets locked or its PIN changes. */
+    public void invalidate(long pan) {
+        int slot = slot(pan);
+        Entry entry = entries.get(slot);
+        if (entry != null && entry.pan == pan) {
+            entries.compareAndSet(slot, entry, null);
+        }
+    }
+
+    private int slot(long pan) {
+        return Long.hashCode(mix(pan)) & mask;
+    }
+
+    private long digest(long pan, String pin) {
+        long h = secret ^ pan;
+        for (int i = 0; i < pin.length(); i++) {
+            h = mix(h ^ pin.charAt(i));
+        }
+        return mix(h ^ pin.length());
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,173 @@
+package services;
+
+import enums.SettlementIssue;
+import models.AtmSettlement;
+import models.CashSnapshot;
+import models.JournaledCash;
+import models.SettlementReport;
+import models.SettlementTotals;
+import repository.CashJournal;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * End-of-day settlement across an AtmFleet.
+ *
+ * Each ATM's cash snapshot is reconciled against a record kept apart from the cash counts:
+ *   - a journaled ATM against the dispensed notes its journal records, which is where a recovered
+ *     ATM's counts came from and where an operator's settlement of in-doubt reservations is recorded;
+ *   - any other ATM against its opening dispensed amount plus the receipts it has issued since.
+ * The snapshot, receipts total, notes at the dispenser and journaled counts are read together while
+ * no withdrawal is reserving or settling on that ATM (AtmMachineService.readBetweenWithdrawals), so
+ * a difference is a real one, not a withdrawal caught half-way. The journal keeps its per-ATM
+ * counts current as records are appended, so settlement never reads the journal itself.
+ *
+ * Settlement runs as one fork/join pass over leaves of LEAF_SIZE ATMs, each reading and reconciling
+ * its ATMs and building fleet and region totals, merging halves on the way up so no accumulator is
+ * contended. Waiting for an ATM's cash lock is a managed block, so the pool stays busy meanwhile.
+ */
+public class SettlementService {
+
+    private static final int LEAF_SIZE = 256;
+
+    private final ForkJoinPool pool;
+
+    public SettlementService() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public SettlementService(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * One ATM as read between two withdrawals.
+     */
+    private static final class Reading {
+        final AtmMachineService atm;
+        final CashSnapshot snapshot;
+        final long receiptedAmount;
+        final long inFlightAmount;
+        /** The journal's counts for the ATM, or null if it is not journaled. */
+        final JournaledCash journaled;
+
+        Reading(AtmMachineService atm) {
+            this.atm = atm;
+            this.snapshot = atm.getCashDao().getSnapshot();
+            this.receiptedAmount = atm.getOpeningDispensedAmount() + atm.getDispensedAmount();
+            this.inFlightAmount = atm.getInFlightAmount();
+            CashJournal journal = atm.getCashDao().getJournal();
+            this.journaled = journal == null ? null : journal.getJournaledCash(atm.getAtmId());
+        }
+    }
+
+    /**
+     * Partial settlement of a range of ATMs.
+     */
+    private static final class Partial {
+        final SettlementTotals fleetTotals = new SettlementTotals();
+        final Map<String, SettlementTotals> regionTotals = new HashMap<>();
+        final List<AtmSettlement> atmSettlements = new ArrayList<>();
+        final List<AtmSettlement> mismatches = new ArrayList<>();
+
+        void merge(Partial other) {
+            fleetTotals.merge(other.fleetTotals);
+            for (Map.Entry<String, SettlementTotals> entry : other.regionTotals.entrySet()) {
+                SettlementTotals totals = regionTotals.putIfAbsent(entry.getKey(), entry.getValue());
+                if (totals != null) {
+                    totals.merge(entry.getValue());
+                }
+            }
+            atmSettlements.addAll(other.atmSettlements);
+            mismatches.addAll(other.mismatches);
+        }
+    }
+
+    private static final class SettleTask extends RecursiveTask<Partial> {
+        private final AtmMachineService[] atms;
+        private final int from;
+        private final int to;
+
+        SettleTask(AtmMachineService[] atms, int from, int to) {
+            this.atms = atms;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= LEAF_SIZE) {
+                Partial partial = new Partial();
+                for (int i = from; i < to; i++) {
+                    AtmSettlement settlement = settle(atms[i]);
+                    CashSnapshot snapshot = settlement.getSnapshot();
+                    partial.fleetTotals.add(snapshot);
+                    partial.regionTotals.computeIfAbsent(settlement.getRegion(), region -> new SettlementTotals())
+                            .add(snapshot);
+                    partial.atmSettlements.add(settlement);
+                    if (!settlement.isReconciled()) {
+                        partial.mismatches.add(settlement);
+                    }
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            SettleTask left = new SettleTask(atms, from, mid);
+            SettleTask right = new SettleTask(atms, mid, to);
+            left.fork();
+            Partial result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    /**
+     * Settles every ATM currently registered in the fleet.
+     */
+    public SettlementReport settle(AtmFleet fleet) {
+        long start = System.currentTimeMillis();
+        AtmMachineService[] atms = fleet.getAtms().toArray(new AtmMachineService[0]);
+        Partial partial = pool.invoke(new SettleTask(atms, 0, atms.length));
+        return new SettlementReport(partial.fleetTotals, partial.regionTotals, partial.atmSettlements,
+                partial.mismatches, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reconciles one ATM on its own.
+     */
+    public static AtmSettlement settle(AtmMachineService atm) {
+        return reconcile(atm.readBetweenWithdrawals(Reading::new));
+    }
+
+    private static AtmSettlement reconcile(Reading reading) {
+        CashSnapshot snapshot = reading.snapshot;
+        Set<SettlementIssue> issues = EnumSet.noneOf(SettlementIssue.class);
+        long recorded;
+        if (reading.journaled != null) {
+            recorded = reading.journaled.getSnapshot().getDispensedAmount();
+            if (recorded != snapshot.getDispensedAmount()) {
+                issues.add(SettlementIssue.JOURNAL_MISMATCH);
+            }
+        } else {
+            recorded = reading.receiptedAmount;
+            if (recorded != snapshot.getDispensedAmount()) {
+                issues.add(SettlementIssue.DISPENSED_MISMATCH);
+            }
+        }
+        // Notes at the dispenser are accounted for; anything else still reserved is in doubt
+        if (snapshot.getReservedAmount() != reading.inFlightAmount) {
+            issues.add(SettlementIssue.PENDING_RESERVATIONS);
+        }
+        if (snapshot.hasNegativeCount()) {
+            issues.add(SettlementIssue.NEGATIVE_COUNT);
+        }
+        return new AtmSettlement(reading.atm.getAtmId(), reading.atm.getRegion(), snapshot, recorded, issues);
+    }
+}
@@ -0,0 +1,146 @@
+package analytics;
+
+import entities.Ticket;
+import enums.SpotType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only columnar view of closed tickets.
+ * Each column is a primitive array split into fixed-size chunks, so a query can scan one
+ * column without touching Ticket objects and parallel tasks can split work at chunk boundaries.
+ *
+ * Appends are serialized by the object monitor (they happen on the unpark path, never on park).
+ * Readers are lock-free: rows are written before the volatile row count is bumped, and the chunk
+ * and dictionary arrays are republished before the count, so any row below size() is fully visible.
+ */
+public class ClosedTicketColumns {
+
+    static final int CHUNK_SHIFT = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * One chunk of rows. Type and dictionary codes are stored instead of Strings and enums.
+     */
+    static final class Chunk {
+        final long[] parkedAt = new long[CHUNK_SIZE];
+        final long[] unparkedAt = new long[CHUNK_SIZE];
+        final double[] cost = new double[CHUNK_SIZE];
+        final byte[] vehicleType = new byte[CHUNK_SIZE];
+        final byte[] spotType = new byte[CHUNK_SIZE];
+        final int[] spot = new int[CHUNK_SIZE];
+        final int[] exitGate = new int[CHUNK_SIZE];
+    }
+
+    private volatile Chunk[] chunks = new Chunk[4];
+    private volatile int size;
+
+    private final Map<String, Integer> spotCodes = new HashMap<>();
+    private final Map<String, Integer> gateCodes = new HashMap<>();
+    private volatile String[] spotNames = new String[64];
+    private volatile String[] gateNames = new String[16];
+
+    /**
+     * Records a closed ticket.
+     *
+     * @param ticket A ticket with unparkedAt, exit gate and cost populated
+     * @param spotType Type of the spot the vehicle occupied
+     */
+    public synchronized void append(Ticket ticket, SpotType spotType) {
+        if (ticket.getUnparkedAt() == null) {
+            throw new IllegalArgumentException("Ticket " + ticket.getTicketId() + " is not closed");
+        }
+        int row = size;
+        int chunkIndex = row >>> CHUNK_SHIFT;
+        Chunk[] current = chunks;
+        if (chunkIndex == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (current[chunkIndex] == null) {
+            current[chunkIndex] = new Chunk();
+            chunks = current;
+        }
+
+        Chunk chunk = current[chunkIndex];
+        int offset = row & CHUNK_MASK;
+        chunk.parkedAt[offset] = ticket.getParkedAt().getTime();
+        chunk.unparkedAt[offset] = ticket.getUnparkedAt().getTime();
+        chunk.cost[offset] = ticket.getCost() == null ? 0.0 : ticket.getCost();
+        chunk.vehicleType[offset] = (byte) ticket.getVehicleType().ordinal();
+        chunk.spotType[offset] = (byte) spotType.ordinal();
+        chunk.spot[offset] = spotCode(ticket.getSpotId());
+        chunk.exitGate[offset] = gateCode(ticket.getExitGateId());
+
+        // Publishes the row (and any new chunk/dictionary arrays) to readers
+        size = row + 1;
+    }
+
+    private int spotCode(String spotId) {
+        Integer code = spotCodes.get(spotId);
+        if (code == null) {
+            code = spotCodes.size();
+            spotCodes.put(spotId, code);
+            if (code == spotNames.length) {
+                spotNames = Arrays.copyOf(spotNames, code * 2);
+            }
+            spotNames[code] = spotId;
+        }
+        return code;
+    }
+
+    private int gateCode(String gateId) {
+        Integer code = gateCodes.get(gateId);
+        if (code == null) {
+            code = gateCodes.size();
+            gateCodes.put(gateId, code);
+            if (code == gateNames.length) {
+                gateNames = Arrays.copyOf(gateNames, code * 2);
+            }
+            gateNames[code] = gateId;
+        }
+        return code;
+    }
+
+    /**
+     * Number of closed tickets recorded so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Takes a consistent read view: every row below the returned size is complete.
+     */
+    Snapshot snapshot() {
+        int rows = size;
+        return new Snapshot(rows, chunks, spotNames, gateNames);
+    }
+
+    /**
+     * Immutable read view handed to query tasks.
+     */
+    static final class Snapshot {
+        final int rows;
+        final Chunk[] chunks;
+        final String[] spotNames;
+        final String[] gateNames;
+
+        Snapshot(int rows, Chunk[] chunks, String[] spotNames, String[] gateNames) {
+            this.rows = rows;
+            this.chunks = chunks;
+            this.spotNames = spotNames;
+            this.gateNames = gateNames;
+        }
+
+        int chunkCount() {
+            return (rows + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        }
+
+        int rowsInChunk(int chunkIndex) {
+            return Math.min(CHUNK_SIZE, rows - (chunkIndex << CHUNK_SHIFT));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package analytics;
+
+import analytics.ClosedTicketColumns.Chunk;
+import analytics.ClosedTicketColumns.Snapshot;
+import enums.SpotType;
+import enums.VehicleType;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Reporting queries over ClosedTicketColumns.
+ * Every query takes a snapshot, fans out one fork/join leaf per column chunk, and merges the
+ * per-leaf accumulators. Nothing here reads Ticket objects or takes the store's append lock,
+ * so reports never slow down parking.
+ *
+ * Only closed tickets are covered; vehicles that are still parked are not counted.
+ */
+public class TicketAnalyticsService {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final int MINUTES_PER_HOUR = 60;
+
+    private final ClosedTicketColumns columns;
+    private final ForkJoinPool pool;
+
+    public TicketAnalyticsService(ClosedTicketColumns columns) {
+        this(columns, ForkJoinPool.commonPool());
+    }
+
+    public TicketAnalyticsService(ClosedTicketColumns columns, ForkJoinPool pool) {
+        this.columns = columns;
+        this.pool = pool;
+    }
+
+    /**
+     * Folds rows of a single chunk into a leaf accumulator.
+     */
+    private interface ChunkAccumulator<A> {
+        void accumulate(A accumulator, Chunk chunk, int rows);
+    }
+
+    /**
+     * Splits the chunk range in half until each task owns a single chunk.
+     */
+    private static final class ChunkTask<A> extends RecursiveTask<A> {
+        private final Snapshot snapshot;
+        private final int fromChunk;
+        private final int toChunk;
+        private final Supplier<A> initial;
+        private final ChunkAccumulator<A> accumulator;
+        private final BinaryOperator<A> merger;
+
+        ChunkTask(Snapshot snapshot, int fromChunk, int toChunk, Supplier<A> initial,
+                  ChunkAccumulator<A> accumulator, BinaryOperator<A> merger) {
+            this.snapshot = snapshot;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.initial = initial;
+            this.accumulator = accumulator;
+            this.merger = merger;
+        }
+
+        @Override
+        protected A compute() {
+            if (toChunk - fromChunk <= 1) {
+                A result = initial.get();
+                for (int c = fromChunk; c < toChunk; c++) {
+                    accumulator.accumulate(result, snapshot.chunks[c], snapshot.rowsInChunk(c));
+                }
+                return result;
+            }
+            int mid = (fromChunk + toChunk) >>> 1;
+            ChunkTask<A> left = new ChunkTask<>(snapshot, fromChunk, mid, initial, accumulator, merger);
+            ChunkTask<A> right = new ChunkTask<>(snapshot, mid, toChunk, initial, accumulator, merger);
+            left.fork();
+            A rightResult = right.compute();
+            return merger.apply(left.join(), rightResult);
+        }
+    }
+
+    private <A> A aggregate(Snapshot snapshot, Supplier<A> initial, ChunkAccumulator<A> accumulator,
+                            BinaryOperator<A> merger) {
+        return pool.invoke(new ChunkTask<>(snapshot, 0, snapshot.chunkCount(), initial, accumulator, merger));
+    }
+
+    private static long[] addLongs(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+    private static double[] addDoubles(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+    /**
+     * Number of closed tickets covered by the next query.
+     */
+    public int getClosedTicketCount() {
+        return columns.size();
+    }
+
+    /**
+     * Histogram of dwell time (unparkedAt - parkedAt).
+     *
+     * @param bucketMillis Width of each bucket
+     * @param bucketCount Number of buckets; the last bucket also counts every longer stay
+     * @return Ticket counts per bucket
+     */
+    public long[] dwellTimeHistogram(long bucketMillis, int bucketCount) {
+        if (bucketMillis <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("bucketMillis and bucketCount must be positive");
+        }
+        int last = bucketCount - 1;
+        return aggregate(columns.snapshot(), () -> new long[bucketCount], (histogram, chunk, rows) -> {
+            for (int i = 0; i < rows; i++) {
+                long bucket = (chunk.unparkedAt[i] - chunk.parkedAt[i]) / bucketMillis;
+                histogram[(int) Math.max(0, Math.min(bucket, last))]++;
+            }
+        }, TicketAnalyticsService::addLongs);
+    }
+
+    /**
+     * Peak number of vehicles present in each hour, sampled at minute resolution.
+     * A vehicle counts at a sample instant t when parkedAt <= t < unparkedAt.
+     *
+     * @param fromMillis Start of the first hour
+     * @param hours Number of hours to report
+     * @return Peak occupancy per hour
+     */
+    public int[] peakOccupancyByHour(long fromMillis, int hours) {
+        if (hours <= 0) {
+            throw new IllegalArgumentException("hours must be positive");
+        }
+        int minutes = hours * MINUTES_PER_HOUR;
+        long toMillis = fromMillis + minutes * MINUTE_MILLIS;
+
+        // Leaves build a difference array over sample minutes; the prefix sum is the occupancy
+        long[] deltas = aggregate(columns.snapshot(), () -> new long[minutes + 1], (delta, chunk, rows) -> {
+            for (int i = 0; i < rows; i++) {
+                long parkedAt = chunk.parkedAt[i];
+                long unparkedAt = chunk.unparkedAt[i];
+                if (unparkedAt <= fromMillis || parkedAt >= toMillis) {
+                    continue;
+                }
+                delta[firstSampleAtOrAfter(parkedAt, fromMillis, minutes)]++;
+                delta[firstSampleAtOrAfter(unparkedAt, fromMillis, minutes)]--;
+            }
+        }, TicketAnalyticsService::addLongs);
+
+        int[] peaks = new int[hours];
+        long occupancy = 0;
+        for (int m = 0; m < minutes; m++) {
+            occupancy += deltas[m];
+            int hour = m / MINUTES_PER_HOUR;
+            peaks[hour] = (int) Math.max(peaks[hour], occupancy);
+        }
+        return peaks;
+    }
+
+    private static int firstSampleAtOrAfter(long millis, long fromMillis, int minutes) {
+        if (millis <= fromMillis) {
+            return 0;
+        }
+        long sample = (millis - fromMillis + MINUTE_MILLIS - 1) / MINUTE_MILLIS;
+        return (int) Math.min(sample, minutes);
+    }
+
+    public Map<VehicleType, Double> revenueByVehicleType() {
+        VehicleType[] types = VehicleType.values();
+        double[] revenue = aggregate(columns.snapshot(), () -> new double[types.length], (totals, chunk, rows) -> {
+            for (int i = 0; i < rows; i++) {
+                totals[chunk.vehicleType[i]] += chunk.cost[i];
+            }
+        }, TicketAnalyticsService::addDoubles);
+
+        Map<VehicleType, Double> result = new EnumMap<>(VehicleType.class);
+        for (VehicleType type : types) {
+            result.put(type, revenue[type.ordinal()]);
+        }
+        return result;
+    }
+
+    public Map<SpotType, Double> revenueBySpotType() {
+        SpotType[] types = SpotType.values();
+        double[] revenue = aggregate(columns.snapshot(), () -> new double[types.length], (totals, chunk, rows) -> {
+            for (int i = 0; i < rows; i++) {
+                totals[chunk.spotType[i]] += chunk.cost[i];
+            }
+        }, TicketAnalyticsService::addDoubles);
+
+        Map<SpotType, Double> result = new EnumMap<>(SpotType.class);
+        for (SpotType type : types) {
+            result.put(type, revenue[type.ordinal()]);
+        }
+        return result;
+    }
+
+    /**
+     * Revenue grouped by the exit gate where the ticket was paid.
+     */
+    public Map<String, Double> revenueByExitGate() {
+        Snapshot snapshot = columns.snapshot();
+        int gateCount = snapshot.gateNames.length;
+        double[] revenue = aggregate(snapshot, () -> new double[gateCount], (totals, chunk, rows) -> {
+            for (int i = 0; i < rows; i++) {
+                totals[chunk.exitGate[i]] += chunk.cost[i];
+            }
+        }, TicketAnalyticsService::addDoubles);
+
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int code = 0; code < gateCount && snapshot.gateNames[code] != null; code++) {
+            result.put(snapshot.gateNames[code], revenue[code]);
+        }
+        return result;
+    }
+
+    /**
+     * Number of closed tickets per spot, i.e. how many times each spot turned over.
+     */
+    public Map<String, Long> turnoverBySpot() {
+        Snapshot snapshot = columns.snapshot();
+        int spotCount = snapshot.spotNames.length;
+        long[] turnover = aggregate(snapshot, () -> new long[spotCount], (counts, chunk, rows) -> {
+            for (int i = 0; i < rows; i++) {
+                counts[chunk.spot[i]]++;
+            }
+        }, TicketAnalyticsService::addLongs);
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int code = 0; code < spotCount && snapshot.spotNames[code] != null; code++) {
+            result.put(snapshot.spotNames[code], turnover[code]);
+        }
+        return result;
+    }
+}
@@ -12,6 +12,15 @@ import java.util.Map;
 public class ParkingConstants {
     
     public static final Map<VehicleType, List<SpotType>> ALLOWED_SPOTS_FOR_VEHICLE_TYPE;
+
+    /** Number of free spots an entry gate claims from the shared pool per refill. */
+    public static final int SPOT_LEASE_BATCH_SIZE = 16;
+
+    /** A gate that parks nothing for this long has its leased spots returned to the shared pool. */
+    public static final long SPOT_LEASE_IDLE_MILLIS = 30 * 1000L;
+
+    /** Paid window granted at entry; extend it with ParkingLotService.extendPaidStay. */
+    public static final long DEFAULT_PAID_STAY_MILLIS = 2 * 60 * 60 * 1000L;
     
     static {
         EnumMap<VehicleType, List<SpotType>> map = new EnumMap<>(VehicleType.class);
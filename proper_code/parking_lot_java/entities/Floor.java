@@ -1,6 +1,7 @@
 package entities;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,15 +13,17 @@ import java.util.Map;
  */
 public class Floor {
     private final Map<String, Spot> spots = new HashMap<>();
+    private final List<Spot> spotsInOrder;
 
     public Floor(List<Spot> spotList) {
         for (Spot spot : spotList) {
             spots.put(spot.getSpotId(), spot);
         }
+        this.spotsInOrder = Collections.unmodifiableList(new ArrayList<>(spotList));
     }
 
     /**
-     * Gets all available (unoccupied) spots on this floor.
+     * Gets all available (unoccupied and unleased) spots on this floor.
      * Synchronized to ensure consistent snapshot of available spots across the iteration.
      * 
      * @return List of available spots
@@ -28,13 +31,34 @@ public class Floor {
     public synchronized List<Spot> getAvailableSpots() {
         List<Spot> availableSpots = new ArrayList<>();
         for (Spot spot : spots.values()) {
-            if (!spot.isOccupied()) {
+            if (spot.isAvailable()) {
                 availableSpots.add(spot);
             }
         }
         return availableSpots;
     }
 
+    /**
+     * Every spot on this floor in construction order, whatever its state.
+     * Immutable, so strategies can walk it lazily instead of copying the available spots.
+     */
+    public List<Spot> getSpots() {
+        return spotsInOrder;
+    }
+
+    /**
+     * Counts spots holding a vehicle. Leased but empty spots are not counted.
+     */
+    public int getOccupiedSpotCount() {
+        int occupied = 0;
+        for (Spot spot : spots.values()) {
+            if (spot.isOccupied()) {
+                occupied++;
+            }
+        }
+        return occupied;
+    }
+
     /**
      * Simple read from immutable map - no synchronization needed.
      */
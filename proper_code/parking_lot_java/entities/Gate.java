@@ -5,6 +5,7 @@ import enums.GateType;
 public class Gate {
     private final String gateId;
     private final GateType gateType;
+    private final SpotLease spotLease = new SpotLease();
 
     public Gate(String gateId, GateType gateType) {
         this.gateId = gateId;
@@ -18,4 +19,8 @@ public class Gate {
     public GateType getGateType() {
         return gateType;
     }
+
+    public SpotLease getSpotLease() {
+        return spotLease;
+    }
 }
@@ -5,11 +5,14 @@ import enums.SpotType;
 /**
  * Represents a parking spot with thread-safe operations.
  * Uses synchronized keyword to ensure that only one thread can park/unpark at a time.
+ * A free spot can be leased to an entry gate; a leased spot is invisible to every other gate
+ * until the lease holder parks in it or releases it.
  */
 public class Spot {
     private final String spotId;
     private final SpotType spotType;
     private String vehicleId;
+    private String leasedToGateId;
 
     public Spot(String spotId, SpotType spotType) {
         this.spotId = spotId;
@@ -24,8 +27,8 @@ public class Spot {
      * @return true if parking was successful, false if spot was already occupied
      */
     public synchronized boolean tryParkVehicle(String vehicleId) {
-        if (this.vehicleId != null) {
-            return false; // Spot already occupied
+        if (this.vehicleId != null || leasedToGateId != null) {
+            return false; // Spot already occupied or leased to a gate
         }
         this.vehicleId = vehicleId;
         return true;
@@ -38,12 +41,49 @@ public class Spot {
      * @throws IllegalStateException if spot is already occupied
      */
     public synchronized void parkVehicle(String vehicleId) {
-        if (this.vehicleId != null) {
+        if (this.vehicleId != null || leasedToGateId != null) {
             throw new IllegalStateException("Spot " + spotId + " is already occupied");
         }
         this.vehicleId = vehicleId;
     }
 
+    /**
+     * Reserves a free spot for the given gate.
+     *
+     * @param gateId The gate taking the lease
+     * @return true if the spot was free and is now leased, false otherwise
+     */
+    public synchronized boolean tryLease(String gateId) {
+        if (vehicleId != null || leasedToGateId != null) {
+            return false;
+        }
+        leasedToGateId = gateId;
+        return true;
+    }
+
+    /**
+     * Parks a vehicle at a spot leased to the given gate, consuming the lease.
+     *
+     * @return true if parked, false if the spot is no longer leased to this gate
+     */
+    public synchronized boolean tryParkLeasedVehicle(String gateId, String vehicleId) {
+        if (this.vehicleId != null || !gateId.equals(leasedToGateId)) {
+            return false;
+        }
+        this.vehicleId = vehicleId;
+        this.leasedToGateId = null;
+        return true;
+    }
+
+    /**
+     * Returns the spot to the shared pool if it is still leased to the given gate.
+     */
+    public synchronized void releaseLease(String gateId) {
+        if (gateId.equals(leasedToGateId)) {
+            leasedToGateId = null;
+        }
+    }
+
     /**
      * Unparks the vehicle from this spot.
      * Thread-safe operation.
@@ -62,6 +102,13 @@ public class Spot {
         return vehicleId != null;
     }
 
+    /**
+     * Checks if the spot can be taken from the shared pool (neither occupied nor leased).
+     */
+    public synchronized boolean isAvailable() {
+        return vehicleId == null && leasedToGateId == null;
+    }
+
     public String getSpotId() {
         return spotId;
     }
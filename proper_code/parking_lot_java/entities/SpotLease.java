@@ -0,0 +1,61 @@
+package entities;
+
+import enums.VehicleType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spots pre-claimed by one entry gate, grouped by the vehicle type they were claimed for.
+ * Only threads parking through the owning gate touch this monitor, so in the common case a
+ * park is an uncontended pop instead of a race with other gates over the same shared spots.
+ */
+public class SpotLease {
+    private final Map<VehicleType, ArrayDeque<Spot>> leasedSpots = new EnumMap<>(VehicleType.class);
+    private long lastUsedAt = System.currentTimeMillis();
+
+    public SpotLease() {
+        for (VehicleType vehicleType : VehicleType.values()) {
+            leasedSpots.put(vehicleType, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Takes the next leased spot for the vehicle type.
+     *
+     * @return A leased spot, or null if the lease for this type is empty
+     */
+    public synchronized Spot poll(VehicleType vehicleType) {
+        lastUsedAt = System.currentTimeMillis();
+        return leasedSpots.get(vehicleType).pollFirst();
+    }
+
+    public synchronized void add(VehicleType vehicleType, Spot spot) {
+        leasedSpots.get(vehicleType).addLast(spot);
+    }
+
+    /**
+     * Removes every spot leased for the vehicle type so the caller can return them to the shared pool.
+     */
+    public synchronized List<Spot> drain(VehicleType vehicleType) {
+        ArrayDeque<Spot> spots = leasedSpots.get(vehicleType);
+        List<Spot> drained = new ArrayList<>(spots);
+        spots.clear();
+        return drained;
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (ArrayDeque<Spot> spots : leasedSpots.values()) {
+            size += spots.size();
+        }
+        return size;
+    }
+
+    public synchronized long getLastUsedAt() {
+        return lastUsedAt;
+    }
+}
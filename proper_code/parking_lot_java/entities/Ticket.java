@@ -1,5 +1,7 @@
 package entities;
 
+import enums.VehicleType;
+
 import java.util.Date;
 
 public class Ticket {
@@ -8,17 +10,21 @@ public class Ticket {
     private final String entryGateId;
     private final Date parkedAt;
     private final String vehicleId;
+    private final VehicleType vehicleType;
     
     private String exitGateId;
     private Double cost;
     private Date unparkedAt;
+    private Date paidUntil;
 
-    public Ticket(String ticketId, String spotId, String entryGateId, Date parkedAt, String vehicleId) {
+    public Ticket(String ticketId, String spotId, String entryGateId, Date parkedAt, String vehicleId,
+                  VehicleType vehicleType) {
         this.ticketId = ticketId;
         this.spotId = spotId;
         this.entryGateId = entryGateId;
         this.parkedAt = parkedAt;
         this.vehicleId = vehicleId;
+        this.vehicleType = vehicleType;
     }
 
     public String getTicketId() {
@@ -41,6 +47,10 @@ public class Ticket {
         return vehicleId;
     }
 
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
     public String getExitGateId() {
         return exitGateId;
     }
@@ -64,4 +74,12 @@ public class Ticket {
     public void setUnparkedAt(Date unparkedAt) {
         this.unparkedAt = unparkedAt;
     }
+
+    public Date getPaidUntil() {
+        return paidUntil;
+    }
+
+    public void setPaidUntil(Date paidUntil) {
+        this.paidUntil = paidUntil;
+    }
 }
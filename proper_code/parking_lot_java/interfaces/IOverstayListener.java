@@ -0,0 +1,16 @@
+package interfaces;
+
+import entities.Ticket;
+
+/**
+ * Notified when a parked vehicle passes the end of its paid stay.
+ */
+public interface IOverstayListener {
+    /**
+     * Called once per paid window, on the overstay monitor thread.
+     * Implementations should return quickly; slow work belongs on another executor.
+     *
+     * @param ticket The active ticket whose paidUntil has passed
+     */
+    void onOverstay(Ticket ticket);
+}
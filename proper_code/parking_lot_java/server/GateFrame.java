@@ -0,0 +1,113 @@
+package server;
+
+import enums.VehicleType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-layout binary frames exchanged between gate controllers and the GateServer.
+ * Every frame has a constant size, so a reader never needs a length prefix and
+ * several frames can be pipelined back to back on one connection.
+ *
+ * Request (40 bytes):
+ *   [0]      op            (OP_PARK / OP_UNPARK)
+ *   [1]      vehicle type  (VehicleType ordinal)
+ *   [2..3]   reserved
+ *   [4..7]   correlation id, echoed back in the response
+ *   [8..23]  gate id       (ASCII, zero padded)
+ *   [24..39] vehicle id    (ASCII, zero padded)
+ *
+ * Response (32 bytes):
+ *   [0]      op            (echoed)
+ *   [1]      status        (STATUS_*)
+ *   [2..3]   reserved
+ *   [4..7]   correlation id
+ *   [8..15]  cost          (double, NaN for park)
+ *   [16..31] spot id       (ASCII, zero padded)
+ *
+ * Responses are written in request order, so the correlation id is only a convenience
+ * for clients that keep several requests in flight.
+ */
+public final class GateFrame {
+
+    public static final int REQUEST_SIZE = 40;
+    public static final int RESPONSE_SIZE = 32;
+    public static final int ID_SIZE = 16;
+
+    public static final byte OP_PARK = 1;
+    public static final byte OP_UNPARK = 2;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_REJECTED = 1;
+    public static final byte STATUS_UNKNOWN_GATE = 2;
+    public static final byte STATUS_BAD_REQUEST = 3;
+    public static final byte STATUS_ERROR = 4;
+
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private GateFrame() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Writes a request frame at the buffer's current position.
+     */
+    public static void putRequest(ByteBuffer buffer, byte op, VehicleType vehicleType, int correlationId,
+                                  String gateId, String vehicleId) {
+        buffer.put(op);
+        buffer.put((byte) vehicleType.ordinal());
+        buffer.putShort((short) 0);
+        buffer.putInt(correlationId);
+        putId(buffer, gateId);
+        putId(buffer, vehicleId);
+    }
+
+    /**
+     * Writes a response frame at the buffer's current position.
+     */
+    public static void putResponse(ByteBuffer buffer, byte op, byte status, int correlationId,
+                                   double cost, String spotId) {
+        buffer.put(op);
+        buffer.put(status);
+        buffer.putShort((short) 0);
+        buffer.putInt(correlationId);
+        buffer.putDouble(cost);
+        putId(buffer, spotId);
+    }
+
+    /**
+     * Maps a vehicle type code from the wire back to the enum.
+     *
+     * @return the vehicle type, or null if the code is out of range
+     */
+    public static VehicleType vehicleType(byte code) {
+        return code >= 0 && code < VEHICLE_TYPES.length ? VEHICLE_TYPES[code] : null;
+    }
+
+    /**
+     * Reads a zero-padded ASCII id of ID_SIZE bytes at the given absolute offset.
+     * The scratch array is supplied by the caller so decoding does not allocate beyond the String itself.
+     */
+    public static String getId(ByteBuffer buffer, int offset, byte[] scratch) {
+        int length = 0;
+        while (length < ID_SIZE) {
+            byte b = buffer.get(offset + length);
+            if (b == 0) {
+                break;
+            }
+            scratch[length++] = b;
+        }
+        return length == 0 ? null : new String(scratch, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private static void putId(ByteBuffer buffer, String id) {
+        int length = id == null ? 0 : Math.min(id.length(), ID_SIZE);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) id.charAt(i));
+        }
+        for (int i = length; i < ID_SIZE; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+}
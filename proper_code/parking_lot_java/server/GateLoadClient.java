@@ -0,0 +1,119 @@
+package server;
+
+import enums.VehicleType;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for GateServer.
+ * Each simulated gate controller opens one connection and pipelines a window of PARK frames,
+ * reads the window of responses, then pipelines UNPARK frames for the same vehicles, in a loop.
+ *
+ * Usage: GateLoadClient [host] [port] [connections] [window] [seconds]
+ * The gate ids match the ones generated by GateServer.main (ENTRY0..15 / EXIT0..15).
+ */
+public class GateLoadClient {
+
+    private static final int GATE_COUNT = 16;
+
+    private final InetSocketAddress address;
+    private final int window;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failedConnections = new LongAdder();
+    private volatile boolean running = true;
+
+    public GateLoadClient(InetSocketAddress address, int window) {
+        this.address = address;
+        this.window = window;
+    }
+
+    private void runConnection(int connectionIndex) {
+        String entryGateId = "ENTRY" + (connectionIndex % GATE_COUNT);
+        String exitGateId = "EXIT" + (connectionIndex % GATE_COUNT);
+        VehicleType[] vehicleTypes = VehicleType.values();
+        String[] vehicleIds = new String[window];
+        for (int i = 0; i < window; i++) {
+            vehicleIds[i] = "C" + connectionIndex + "V" + i;
+        }
+        ByteBuffer requests = ByteBuffer.allocateDirect(GateFrame.REQUEST_SIZE * window);
+        ByteBuffer responses = ByteBuffer.allocateDirect(GateFrame.RESPONSE_SIZE * window);
+
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.socket().setTcpNoDelay(true);
+            int correlationId = 0;
+            while (running) {
+                for (byte op : new byte[]{GateFrame.OP_PARK, GateFrame.OP_UNPARK}) {
+                    String gateId = op == GateFrame.OP_PARK ? entryGateId : exitGateId;
+                    requests.clear();
+                    for (int i = 0; i < window; i++) {
+                        GateFrame.putRequest(requests, op, vehicleTypes[i % vehicleTypes.length],
+                                correlationId++, gateId, vehicleIds[i]);
+                    }
+                    requests.flip();
+                    while (requests.hasRemaining()) {
+                        channel.write(requests);
+                    }
+
+                    responses.clear();
+                    while (responses.hasRemaining()) {
+                        if (channel.read(responses) < 0) {
+                            throw new IOException("Server closed the connection");
+                        }
+                    }
+                    int ok = 0;
+                    for (int i = 0; i < window; i++) {
+                        if (responses.get(i * GateFrame.RESPONSE_SIZE + 1) == GateFrame.STATUS_OK) {
+                            ok++;
+                        }
+                    }
+                    completed.add(window);
+                    succeeded.add(ok);
+                }
+            }
+        } catch (IOException e) {
+            failedConnections.increment();
+            System.out.println("Connection " + connectionIndex + " failed: " + e.getMessage());
+        }
+    }
+
+    public void run(int connections, int seconds) throws InterruptedException {
+        System.out.println("Driving " + connections + " connections with window " + window + " for " + seconds + "s");
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                final int connectionIndex = i;
+                executor.submit(() -> runConnection(connectionIndex));
+            }
+
+            long previous = 0;
+            for (int s = 1; s <= seconds; s++) {
+                Thread.sleep(1000L);
+                long total = completed.sum();
+                System.out.println("t=" + s + "s ops/s: " + (total - previous));
+                previous = total;
+            }
+            running = false;
+        }
+
+        long total = completed.sum();
+        System.out.println("Total ops: " + total + ", ok: " + succeeded.sum()
+                + ", avg ops/s: " + (total / Math.max(1, seconds))
+                + ", failed connections: " + failedConnections.sum());
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 9090;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int window = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        new GateLoadClient(new InetSocketAddress(host, port), window).run(connections, seconds);
+    }
+}
@@ -0,0 +1,379 @@
+package server;
+
+import entities.Floor;
+import entities.Gate;
+import entities.Spot;
+import entities.Ticket;
+import entities.Vehicle;
+import enums.GateType;
+import enums.SpotType;
+import enums.VehicleType;
+import services.ParkingLotService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * TCP entry point for gate controllers speaking the GateFrame binary protocol.
+ *
+ * One acceptor thread hands new connections round-robin to a fixed set of reactor threads.
+ * Each reactor owns a Selector and drives its connections without blocking: it decodes every
+ * complete request frame in the read buffer, calls ParkingLotService inline, and queues the
+ * response frames for a single gathered write. Clients may pipeline as many requests as they
+ * like; when the write buffer fills up the reactor stops reading from that connection until
+ * the peer drains its responses (backpressure instead of unbounded buffering).
+ *
+ * Read and write buffers are direct ByteBuffers owned by the reactor and recycled across
+ * connections, so the steady state does not allocate per frame apart from the id Strings.
+ */
+public class GateServer implements AutoCloseable {
+
+    private static final int FRAMES_PER_BUFFER = 512;
+
+    private final ParkingLotService parkingLotService;
+    private final InetSocketAddress address;
+    private final Reactor[] reactors;
+    private final Map<String, Gate> gatesById = new HashMap<>();
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptorThread;
+    private volatile boolean running;
+
+    public GateServer(ParkingLotService parkingLotService, InetSocketAddress address, int reactorCount) {
+        if (reactorCount <= 0) {
+            throw new IllegalArgumentException("reactorCount must be positive");
+        }
+        this.parkingLotService = parkingLotService;
+        this.address = address;
+        this.reactors = new Reactor[reactorCount];
+    }
+
+    /**
+     * Binds the listening socket and starts the acceptor and reactor threads.
+     * The gate list is snapshotted here; gates added to the service later are not routable.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("GateServer already started");
+        }
+        for (Gate gate : parkingLotService.getGates()) {
+            gatesById.put(gate.getGateId(), gate);
+        }
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        running = true;
+
+        for (int i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor(Selector.open());
+            Thread thread = new Thread(reactors[i], "gate-reactor-" + i);
+            thread.setDaemon(true);
+            reactors[i].thread = thread;
+            thread.start();
+        }
+
+        acceptorThread = new Thread(this::acceptLoop, "gate-acceptor");
+        acceptorThread.setDaemon(true);
+        acceptorThread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        serverChannel.close();
+        for (Reactor reactor : reactors) {
+            reactor.selector.wakeup();
+        }
+        try {
+            acceptorThread.join();
+            for (Reactor reactor : reactors) {
+                reactor.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                reactors[next].register(channel);
+                next = (next + 1) % reactors.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("GateServer accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes one request frame at the input buffer's position and appends its response.
+     * Business failures are reported through the status byte; nothing here closes the connection.
+     */
+    private void handleFrame(ByteBuffer in, ByteBuffer out, byte[] scratch) {
+        int base = in.position();
+        byte op = in.get(base);
+        VehicleType vehicleType = GateFrame.vehicleType(in.get(base + 1));
+        int correlationId = in.getInt(base + 4);
+        String gateId = GateFrame.getId(in, base + 8, scratch);
+        String vehicleId = GateFrame.getId(in, base + 8 + GateFrame.ID_SIZE, scratch);
+        in.position(base + GateFrame.REQUEST_SIZE);
+
+        Gate gate = gateId == null ? null : gatesById.get(gateId);
+        if (gate == null) {
+            GateFrame.putResponse(out, op, GateFrame.STATUS_UNKNOWN_GATE, correlationId, Double.NaN, null);
+            return;
+        }
+        if (vehicleId == null) {
+            GateFrame.putResponse(out, op, GateFrame.STATUS_BAD_REQUEST, correlationId, Double.NaN, null);
+            return;
+        }
+
+        try {
+            if (op == GateFrame.OP_PARK) {
+                if (vehicleType == null) {
+                    GateFrame.putResponse(out, op, GateFrame.STATUS_BAD_REQUEST, correlationId, Double.NaN, null);
+                    return;
+                }
+                Ticket ticket = parkingLotService.parkVehicle(new Vehicle(vehicleId, vehicleType), gate);
+                if (ticket == null) {
+                    GateFrame.putResponse(out, op, GateFrame.STATUS_REJECTED, correlationId, Double.NaN, null);
+                } else {
+                    GateFrame.putResponse(out, op, GateFrame.STATUS_OK, correlationId, Double.NaN, ticket.getSpotId());
+                }
+            } else if (op == GateFrame.OP_UNPARK) {
+                Ticket ticket = parkingLotService.unparkVehicle(new Vehicle(vehicleId, vehicleType), gate);
+                GateFrame.putResponse(out, op, GateFrame.STATUS_OK, correlationId, ticket.getCost(), ticket.getSpotId());
+            } else {
+                GateFrame.putResponse(out, op, GateFrame.STATUS_BAD_REQUEST, correlationId, Double.NaN, null);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Wrong gate type or vehicle not parked
+            GateFrame.putResponse(out, op, GateFrame.STATUS_REJECTED, correlationId, Double.NaN, null);
+        } catch (RuntimeException e) {
+            GateFrame.putResponse(out, op, GateFrame.STATUS_ERROR, correlationId, Double.NaN, null);
+        }
+    }
+
+    /**
+     * Selector loop owning a subset of the connections.
+     * Everything except register() runs on the reactor's own thread, so connection state needs no locking.
+     */
+    private final class Reactor implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<ByteBuffer> inPool = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> outPool = new ArrayDeque<>();
+        private final byte[] scratch = new byte[GateFrame.ID_SIZE];
+        private Thread thread;
+
+        Reactor(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerPending();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            connection.service(key);
+                        } catch (IOException e) {
+                            connection.close(key);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("GateServer reactor failed: " + e.getMessage());
+            } finally {
+                closeAll();
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                try {
+                    channel.register(selector, SelectionKey.OP_READ, new Connection(channel, this));
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        ByteBuffer borrow(ArrayDeque<ByteBuffer> pool, int frameSize) {
+            ByteBuffer buffer = pool.pollFirst();
+            return buffer != null ? buffer : ByteBuffer.allocateDirect(frameSize * FRAMES_PER_BUFFER);
+        }
+
+        void release(ByteBuffer in, ByteBuffer out) {
+            in.clear();
+            out.clear();
+            inPool.addFirst(in);
+            outPool.addFirst(out);
+        }
+
+        private void closeAll() {
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                ((Connection) key.attachment()).close(key);
+            }
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                closeQuietly(channel);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Shutting down anyway
+            }
+        }
+    }
+
+    /**
+     * Per-connection state: a read buffer holding partial frames and a write buffer of queued responses.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final Reactor reactor;
+        private final ByteBuffer in;
+        private final ByteBuffer out;
+
+        Connection(SocketChannel channel, Reactor reactor) {
+            this.channel = channel;
+            this.reactor = reactor;
+            this.in = reactor.borrow(reactor.inPool, GateFrame.REQUEST_SIZE);
+            this.out = reactor.borrow(reactor.outPool, GateFrame.RESPONSE_SIZE);
+        }
+
+        void service(SelectionKey key) throws IOException {
+            if (key.isReadable() && in.hasRemaining()) {
+                if (channel.read(in) < 0) {
+                    close(key);
+                    return;
+                }
+            }
+
+            // Decode as many pipelined frames as the write buffer can answer, flush, and repeat while
+            // the flush made room and whole frames are still buffered. Stopping early would leave those
+            // frames unanswered until the client happens to send more bytes.
+            in.flip();
+            while (true) {
+                while (in.remaining() >= GateFrame.REQUEST_SIZE && out.remaining() >= GateFrame.RESPONSE_SIZE) {
+                    handleFrame(in, out, reactor.scratch);
+                }
+                out.flip();
+                int written = channel.write(out);
+                out.compact();
+                if (written == 0 || in.remaining() < GateFrame.REQUEST_SIZE) {
+                    break;
+                }
+            }
+            in.compact();
+
+            int interest = 0;
+            if (out.remaining() >= GateFrame.RESPONSE_SIZE) {
+                interest |= SelectionKey.OP_READ;
+            }
+            if (out.position() > 0) {
+                interest |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(interest);
+        }
+
+        void close(SelectionKey key) {
+            key.cancel();
+            closeQuietly(channel);
+            reactor.release(in, out);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing useful to do
+        }
+    }
+
+    /**
+     * Starts a server in front of a generated lot.
+     * Usage: GateServer [port] [floors] [spotsPerFloor] [reactors]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+        int floorCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int spotsPerFloor = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int reactorCount = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        ParkingLotService parkingLotService = ParkingLotService.getInstance();
+        parkingLotService.setLogParkingEvents(false);
+        SpotType[] spotTypes = SpotType.values();
+        List<Floor> floors = new ArrayList<>();
+        for (int f = 0; f < floorCount; f++) {
+            List<Spot> spots = new ArrayList<>();
+            for (int s = 0; s < spotsPerFloor; s++) {
+                spots.add(new Spot("F" + f + "S" + s, spotTypes[s % spotTypes.length]));
+            }
+            floors.add(new Floor(spots));
+        }
+        parkingLotService.setFloors(floors);
+
+        List<Gate> gates = new ArrayList<>();
+        for (int g = 0; g < 16; g++) {
+            gates.add(new Gate("ENTRY" + g, GateType.ENTRY));
+            gates.add(new Gate("EXIT" + g, GateType.EXIT));
+        }
+        parkingLotService.setGates(gates);
+
+        GateServer server = new GateServer(parkingLotService, new InetSocketAddress(port), reactorCount);
+        server.start();
+        System.out.println("GateServer listening on port " + server.getPort() + " with " + reactorCount + " reactors");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException ignored) {
+                // Exiting
+            }
+        }));
+        Thread.currentThread().join();
+    }
+}
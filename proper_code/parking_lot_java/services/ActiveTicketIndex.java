@@ -0,0 +1,55 @@
+package services;
+
+import entities.Ticket;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Active (not yet unparked) tickets ordered by parkedAt.
+ * Backed by a ConcurrentSkipListMap, so "parked before T" is a head-map walk:
+ * O(log n) to find the bound plus O(k) for the k matching tickets, with no full scan.
+ */
+public class ActiveTicketIndex {
+    private final ConcurrentSkipListMap<TicketTimeKey, Ticket> byParkedAt = new ConcurrentSkipListMap<>();
+
+    public void add(Ticket ticket) {
+        byParkedAt.put(new TicketTimeKey(ticket.getParkedAt().getTime(), ticket), ticket);
+    }
+
+    /**
+     * @return false if the ticket was not active, e.g. because another thread removed it first
+     */
+    public boolean remove(Ticket ticket) {
+        return byParkedAt.remove(new TicketTimeKey(ticket.getParkedAt().getTime(), ticket)) != null;
+    }
+
+    /**
+     * Tickets parked strictly before the given instant, oldest first.
+     */
+    public List<Ticket> getParkedBefore(Date instant) {
+        return new ArrayList<>(byParkedAt.headMap(TicketTimeKey.lowerBound(instant.getTime())).values());
+    }
+
+    /**
+     * Tickets whose vehicle has been parked for longer than the given duration, oldest first.
+     */
+    public List<Ticket> getParkedLongerThan(long durationMillis) {
+        return getParkedBefore(new Date(System.currentTimeMillis() - durationMillis));
+    }
+
+    /**
+     * The longest-parked active ticket, or null if the lot is empty.
+     */
+    public Ticket getOldest() {
+        Map.Entry<TicketTimeKey, Ticket> first = byParkedAt.firstEntry();
+        return first == null ? null : first.getValue();
+    }
+
+    public int size() {
+        return byParkedAt.size();
+    }
+}
@@ -0,0 +1,178 @@
+package services;
+
+import entities.Ticket;
+import interfaces.IOverstayListener;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the paid window of every active ticket and fires IOverstayListener events as deadlines pass.
+ *
+ * Pending deadlines live in a ConcurrentSkipListMap ordered by paidUntil. A single daemon thread
+ * sleeps until the earliest deadline, fires everything that is due, and goes back to sleep; it is
+ * woken early only when a new deadline becomes the earliest one. There is no periodic scan.
+ * Fired tickets move to the overstayed set until they are unparked or their stay is extended.
+ */
+public class OverstayMonitor {
+    private final ConcurrentSkipListMap<TicketTimeKey, Ticket> pendingDeadlines = new ConcurrentSkipListMap<>();
+    private final Map<String, TicketTimeKey> deadlineByTicketId = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> overstayed = new ConcurrentHashMap<>();
+    private final List<IOverstayListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition earliestDeadlineChanged = lock.newCondition();
+    private Thread monitorThread;
+
+    /**
+     * Registers a listener and starts the monitor thread on first use.
+     */
+    public void addListener(IOverstayListener listener) {
+        listeners.add(listener);
+        lock.lock();
+        try {
+            if (monitorThread == null) {
+                monitorThread = new Thread(this::run, "overstay-monitor");
+                monitorThread.setDaemon(true);
+                monitorThread.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts (or restarts) tracking the ticket's paid window, replacing any previous deadline.
+     *
+     * @return false if the ticket is already closed, in which case nothing is tracked
+     */
+    public boolean track(Ticket ticket) {
+        return extend(ticket, ticket.getPaidUntil());
+    }
+
+    /**
+     * Moves the ticket's paid window to paidUntil and re-tracks it. The unparked check, the update and
+     * the re-insert happen under the same per-ticket lock as untrack, so an extension racing an
+     * unpark either lands before it (and is then untracked) or sees the ticket closed.
+     *
+     * @return false if the ticket is already closed, in which case it is left unchanged
+     */
+    public boolean extend(Ticket ticket, Date paidUntil) {
+        TicketTimeKey key = new TicketTimeKey(paidUntil.getTime(), ticket);
+        synchronized (ticket) {
+            if (ticket.getUnparkedAt() != null) {
+                return false;
+            }
+            ticket.setPaidUntil(paidUntil);
+            untrack(ticket);
+            deadlineByTicketId.put(ticket.getTicketId(), key);
+            pendingDeadlines.put(key, ticket);
+        }
+
+        Map.Entry<TicketTimeKey, Ticket> first = pendingDeadlines.firstEntry();
+        if (first != null && key.equals(first.getKey())) {
+            lock.lock();
+            try {
+                earliestDeadlineChanged.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops tracking the ticket. Per-ticket locking keeps this atomic with respect to the monitor
+     * firing the same ticket, so an unparked ticket never lingers in the overstayed set.
+     */
+    public void untrack(Ticket ticket) {
+        synchronized (ticket) {
+            TicketTimeKey key = deadlineByTicketId.remove(ticket.getTicketId());
+            if (key != null) {
+                pendingDeadlines.remove(key);
+            }
+            overstayed.remove(ticket.getTicketId());
+        }
+    }
+
+    /**
+     * Active tickets whose paid window has ended, including ones the monitor has not fired yet.
+     */
+    public List<Ticket> getOverstayedTickets() {
+        List<Ticket> result = new ArrayList<>();
+        for (Ticket ticket : overstayed.values()) {
+            // Re-checked under the ticket lock: the ticket may have been unparked since the iteration saw it
+            synchronized (ticket) {
+                if (overstayed.get(ticket.getTicketId()) == ticket && ticket.getUnparkedAt() == null) {
+                    result.add(ticket);
+                }
+            }
+        }
+        for (Map.Entry<TicketTimeKey, Ticket> entry
+                : pendingDeadlines.headMap(TicketTimeKey.lowerBound(System.currentTimeMillis() + 1)).entrySet()) {
+            Ticket ticket = entry.getValue();
+            synchronized (ticket) {
+                // Skips tickets unparked or extended to a new deadline since the iteration saw them
+                if (entry.getKey().equals(deadlineByTicketId.get(ticket.getTicketId())) && ticket.getUnparkedAt() == null) {
+                    result.add(ticket);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void run() {
+        while (true) {
+            List<Ticket> due = new ArrayList<>();
+            lock.lock();
+            try {
+                Map.Entry<TicketTimeKey, Ticket> first = pendingDeadlines.firstEntry();
+                long waitMillis = first == null ? Long.MAX_VALUE : first.getKey().getTime() - System.currentTimeMillis();
+                if (waitMillis > 0) {
+                    if (first == null) {
+                        earliestDeadlineChanged.await();
+                    } else {
+                        earliestDeadlineChanged.await(waitMillis, TimeUnit.MILLISECONDS);
+                    }
+                    continue;
+                }
+                long now = System.currentTimeMillis();
+                Map.Entry<TicketTimeKey, Ticket> entry;
+                while ((entry = pendingDeadlines.firstEntry()) != null && entry.getKey().getTime() <= now) {
+                    Ticket ticket = entry.getValue();
+                    synchronized (ticket) {
+                        pendingDeadlines.remove(entry.getKey());
+                        // Fails if the ticket was untracked or re-tracked with a new deadline meanwhile
+                        if (deadlineByTicketId.remove(ticket.getTicketId(), entry.getKey())) {
+                            overstayed.put(ticket.getTicketId(), ticket);
+                            due.add(ticket);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            for (Ticket ticket : due) {
+                for (IOverstayListener listener : listeners) {
+                    try {
+                        listener.onOverstay(ticket);
+                    } catch (RuntimeException e) {
+                        System.out.println("Overstay listener failed for ticket " + ticket.getTicketId() + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package services;
 
+import analytics.ClosedTicketColumns;
+import constants.ParkingConstants;
 import entities.Floor;
 import entities.Gate;
 import entities.Spot;
+import entities.SpotLease;
 import entities.Ticket;
 import entities.Vehicle;
 import enums.GateType;
+import enums.VehicleType;
+import interfaces.IOverstayListener;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Main service for parking lot operations.
@@ -23,13 +33,29 @@ public class ParkingLotService {
     private static volatile ParkingLotService instance;
     
     private List<Floor> floors = new ArrayList<>();
-    private List<Gate> gates = new ArrayList<>();
+    private volatile List<Gate> gates = new ArrayList<>();
     private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
     private final AtomicInteger ticketCounter = new AtomicInteger(0);
+    private final ClosedTicketColumns closedTickets = new ClosedTicketColumns();
+    private final ActiveTicketIndex activeTickets = new ActiveTicketIndex();
+    private final OverstayMonitor overstayMonitor = new OverstayMonitor();
+    private final PlateIndex plateIndex = new PlateIndex();
     private final ParkingStrategyService parkingStrategyService;
+    private volatile boolean logParkingEvents = true;
+    /** Spots sitting in some gate's lease, per vehicle type (by ordinal). */
+    private final AtomicIntegerArray leasedSpotCounts = new AtomicIntegerArray(VehicleType.values().length);
+    private final ScheduledExecutorService leaseReclaimer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "lease-reclaimer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private ParkingLotService() {
         this.parkingStrategyService = ParkingStrategyService.getInstance();
+        // A gate that goes quiet would otherwise hold its leased spots until the lot fills up
+        long idleMillis = ParkingConstants.SPOT_LEASE_IDLE_MILLIS;
+        leaseReclaimer.scheduleWithFixedDelay(() -> releaseIdleLeases(idleMillis),
+                idleMillis, idleMillis, TimeUnit.MILLISECONDS);
     }
 
     public static ParkingLotService getInstance() {
@@ -43,18 +69,95 @@ public class ParkingLotService {
         return instance;
     }
 
+    /**
+     * Turns the per-vehicle console lines off, e.g. for GateServer where they would dominate the cost
+     * of a park at hundreds of thousands of requests per second.
+     */
+    public void setLogParkingEvents(boolean logParkingEvents) {
+        this.logParkingEvents = logParkingEvents;
+    }
+
     /**
      * Attempts to assign a parking spot to a vehicle with proper concurrency handling.
-     * Iterates through candidate spots and tries each one atomically until success.
-     * No retry mechanism needed - if a spot is taken, naturally moves to the next candidate.
+     * First pops a spot from the gate's own lease, which no other gate can touch. If the lease
+     * cannot be refilled, falls back to the shared candidate iteration. If that also fails, the spots
+     * of this vehicle type still leased to other gates are returned to the pool and the shared path
+     * runs once more; once no gate holds a spot of the type, a miss goes no further.
      * 
      * @param vehicle The vehicle to park
      * @param gate The entry gate
      * @return The assigned spot, or null if no spot available
      */
     private Spot assignParking(Vehicle vehicle, Gate gate) {
+        Spot leasedSpot = parkFromLease(vehicle, gate);
+        if (leasedSpot != null) {
+            return leasedSpot;
+        }
+
+        Spot sharedSpot = parkFromSharedPool(vehicle, gate);
+        if (sharedSpot != null) {
+            return sharedSpot;
+        }
+
+        // Spots of this type may be sitting unused in other gates' leases
+        VehicleType vehicleType = vehicle.getVehicleType();
+        if (leasedSpotCounts.get(vehicleType.ordinal()) > 0 && releaseLeases(vehicleType) > 0) {
+            return parkFromSharedPool(vehicle, gate);
+        }
+        return null;
+    }
+
+    /**
+     * Parks at a spot leased to the gate, refilling the lease in a batch when it runs dry.
+     *
+     * @return The assigned spot, or null if no spot could be leased
+     */
+    private Spot parkFromLease(Vehicle vehicle, Gate gate) {
+        SpotLease lease = gate.getSpotLease();
+        synchronized (lease) {
+            while (true) {
+                Spot spot = lease.poll(vehicle.getVehicleType());
+                if (spot == null) {
+                    if (refillLease(lease, vehicle, gate) == 0) {
+                        return null;
+                    }
+                    continue;
+                }
+                leasedSpotCounts.decrementAndGet(vehicle.getVehicleType().ordinal());
+                // Fails only if the lease was released in the meantime
+                if (spot.tryParkLeasedVehicle(gate.getGateId(), vehicle.getVehicleId())) {
+                    return spot;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims up to SPOT_LEASE_BATCH_SIZE free spots for the vehicle type, in strategy order.
+     *
+     * @return Number of spots added to the lease
+     */
+    private int refillLease(SpotLease lease, Vehicle vehicle, Gate gate) {
+        Iterator<Spot> candidateSpots = parkingStrategyService.getCandidateSpots(vehicle, gate, floors);
+        int leased = 0;
+        while (leased < ParkingConstants.SPOT_LEASE_BATCH_SIZE && candidateSpots.hasNext()) {
+            Spot candidateSpot = candidateSpots.next();
+            if (candidateSpot.tryLease(gate.getGateId())) {
+                lease.add(vehicle.getVehicleType(), candidateSpot);
+                leased++;
+            }
+        }
+        leasedSpotCounts.addAndGet(vehicle.getVehicleType().ordinal(), leased);
+        return leased;
+    }
+
+    /**
+     * Iterates through shared candidate spots and tries each one atomically until success.
+     * No retry mechanism needed - if a spot is taken, naturally moves to the next candidate.
+     */
+    private Spot parkFromSharedPool(Vehicle vehicle, Gate gate) {
         // Get iterator of candidate spots in priority order
-        java.util.Iterator<Spot> candidateSpots = parkingStrategyService.getCandidateSpots(vehicle, gate, floors);
+        Iterator<Spot> candidateSpots = parkingStrategyService.getCandidateSpots(vehicle, gate, floors);
         
         // Try each candidate spot atomically
         while (candidateSpots.hasNext()) {
@@ -66,24 +169,78 @@ public class ParkingLotService {
                 return candidateSpot;
             }
             
-            // Spot was occupied by another thread, automatically try next candidate
+            // Spot was occupied or leased by another thread, automatically try next candidate
         }
         
         // No suitable spots available
         return null;
     }
 
+    private int releaseLease(Gate gate, VehicleType vehicleType) {
+        List<Spot> spots = gate.getSpotLease().drain(vehicleType);
+        leasedSpotCounts.addAndGet(vehicleType.ordinal(), -spots.size());
+        for (Spot spot : spots) {
+            spot.releaseLease(gate.getGateId());
+        }
+        return spots.size();
+    }
+
+    private int releaseLease(Gate gate) {
+        int released = 0;
+        for (VehicleType vehicleType : VehicleType.values()) {
+            released += releaseLease(gate, vehicleType);
+        }
+        return released;
+    }
+
+    /**
+     * Returns every gate's leased spots of one vehicle type to the shared pool.
+     */
+    private int releaseLeases(VehicleType vehicleType) {
+        int released = 0;
+        for (Gate gate : gates) {
+            released += releaseLease(gate, vehicleType);
+        }
+        return released;
+    }
+
+    private int releaseAllLeases() {
+        int released = 0;
+        for (Gate gate : gates) {
+            released += releaseLease(gate);
+        }
+        return released;
+    }
+
+    /**
+     * Returns the leased spots of every gate that has not parked a vehicle for idleMillis.
+     * Runs every SPOT_LEASE_IDLE_MILLIS on the lease-reclaimer thread; callers may also invoke it directly.
+     *
+     * @return Number of spots returned to the shared pool
+     */
+    public int releaseIdleLeases(long idleMillis) {
+        long now = System.currentTimeMillis();
+        int released = 0;
+        for (Gate gate : gates) {
+            if (now - gate.getSpotLease().getLastUsedAt() >= idleMillis) {
+                released += releaseLease(gate);
+            }
+        }
+        return released;
+    }
+
     private String getNewTicketId() {
         return String.valueOf(ticketCounter.incrementAndGet());
     }
 
-    private Ticket createTicket(String spotId, String vehicleId, String gateId) {
+    private Ticket createTicket(String spotId, Vehicle vehicle, String gateId) {
         return new TicketBuilderService()
                 .setEntryGateId(gateId)
                 .setParkedAt(new Date())
                 .setSpotId(spotId)
                 .setTicketId(getNewTicketId())
-                .setVehicleId(vehicleId)
+                .setVehicleId(vehicle.getVehicleId())
+                .setVehicleType(vehicle.getVehicleType())
                 .build();
     }
 
@@ -103,13 +260,19 @@ public class ParkingLotService {
         ticket.setExitGateId(gate.getGateId());
         ticket.setUnparkedAt(new Date());
         ticket.setCost(calculateParkingCost(ticket));
+        overstayMonitor.untrack(ticket);
+        plateIndex.remove(ticket.getVehicleId());
+        closedTickets.append(ticket, spot.getSpotType());
     }
 
     public void setFloors(List<Floor> floors) {
+        // Leases point at spots of the old floors
+        releaseAllLeases();
         this.floors = floors;
     }
 
     public void setGates(List<Gate> gates) {
+        releaseAllLeases();
         this.gates = gates;
     }
 
@@ -121,6 +284,13 @@ public class ParkingLotService {
         return gates;
     }
 
+    /**
+     * Columnar history of closed tickets, for use with TicketAnalyticsService.
+     */
+    public ClosedTicketColumns getClosedTickets() {
+        return closedTickets;
+    }
+
     /**
      * Parks a vehicle in the parking lot.
      * Thread-safe: handles concurrent parking requests.
@@ -139,7 +309,9 @@ public class ParkingLotService {
         if (tickets.containsKey(vehicle.getVehicleId())) {
             Ticket existingTicket = tickets.get(vehicle.getVehicleId());
             if (existingTicket.getUnparkedAt() == null) {
-                System.out.println("Vehicle " + vehicle.getVehicleId() + " is already parked");
+                if (logParkingEvents) {
+                    System.out.println("Vehicle " + vehicle.getVehicleId() + " is already parked");
+                }
                 return null;
             }
         }
@@ -147,19 +319,29 @@ public class ParkingLotService {
         Spot chosenSpot = assignParking(vehicle, gate);
         
         if (chosenSpot == null) {
-            System.out.println("This vehicle cannot be parked. Parking lot for this type of vehicle is fully occupied.");
+            if (logParkingEvents) {
+                System.out.println("This vehicle cannot be parked. Parking lot for this type of vehicle is fully occupied.");
+            }
             return null;
         }
 
-        Ticket ticket = createTicket(chosenSpot.getSpotId(), vehicle.getVehicleId(), gate.getGateId());
+        Ticket ticket = createTicket(chosenSpot.getSpotId(), vehicle, gate.getGateId());
+        ticket.setPaidUntil(new Date(ticket.getParkedAt().getTime() + ParkingConstants.DEFAULT_PAID_STAY_MILLIS));
         tickets.put(vehicle.getVehicleId(), ticket);
+        activeTickets.add(ticket);
+        overstayMonitor.track(ticket);
+        plateIndex.add(vehicle.getVehicleId());
         
-        System.out.println("Vehicle Parked --> vehicleId:" + vehicle.getVehicleId() + ", spotId:" + chosenSpot.getSpotId());
+        if (logParkingEvents) {
+            System.out.println("Vehicle Parked --> vehicleId:" + vehicle.getVehicleId() + ", spotId:" + chosenSpot.getSpotId());
+        }
         return ticket;
     }
 
     /**
      * Unparks a vehicle from the parking lot.
+     * Thread-safe: of two concurrent unparks of the same ticket, only the one that removes it from
+     * the active tickets closes it; the other fails as if the vehicle had already left.
      * 
      * @param vehicle The vehicle to unpark
      * @param gate The exit gate
@@ -185,12 +367,88 @@ public class ParkingLotService {
             throw new IllegalStateException("Spot not found in any floor");
         }
 
+        // Claims the ticket, so the spot is released and the ticket closed exactly once
+        if (!activeTickets.remove(ticket)) {
+            throw new IllegalStateException("Vehicle was not parked before!");
+        }
         Spot spot = floor.getSpot(ticket.getSpotId());
         populateUnParkingDetails(ticket, spot, gate);
         
         return ticket;
     }
 
+    /**
+     * Extends the paid window of a parked vehicle; the overstay alert moves to the new deadline.
+     *
+     * @throws IllegalStateException if vehicle is not parked
+     */
+    public Ticket extendPaidStay(Vehicle vehicle, Date paidUntil) {
+        Ticket ticket = tickets.get(vehicle.getVehicleId());
+        // Also fails if the vehicle is unparked between the lookup and the extension
+        if (ticket == null || !overstayMonitor.extend(ticket, paidUntil)) {
+            throw new IllegalStateException("Vehicle is not parked");
+        }
+        return ticket;
+    }
+
+    /**
+     * Active tickets parked strictly before the given instant, oldest first.
+     */
+    public List<Ticket> getVehiclesParkedBefore(Date instant) {
+        return activeTickets.getParkedBefore(instant);
+    }
+
+    /**
+     * Active tickets parked for longer than the given duration, oldest first.
+     */
+    public List<Ticket> getVehiclesParkedLongerThan(long durationMillis) {
+        return activeTickets.getParkedLongerThan(durationMillis);
+    }
+
+    /**
+     * Active tickets whose paid window has already ended.
+     */
+    public List<Ticket> getOverstayedTickets() {
+        return overstayMonitor.getOverstayedTickets();
+    }
+
+    public void addOverstayListener(IOverstayListener listener) {
+        overstayMonitor.addListener(listener);
+    }
+
+    /**
+     * Active tickets whose vehicle id starts with the prefix, in vehicle id order.
+     */
+    public List<Ticket> findParkedVehiclesByPrefix(String prefix, int limit) {
+        List<Ticket> result = new ArrayList<>();
+        for (String vehicleId : plateIndex.findByPrefix(prefix, limit)) {
+            addIfActive(result, vehicleId);
+        }
+        return result;
+    }
+
+    /**
+     * Active tickets whose vehicle id is within maxDistance edits of a (possibly misread) plate,
+     * closest first. Lets exit gates resolve ANPR misreads before falling back to manual handling.
+     *
+     * @param plate The plate as read by the camera
+     * @param maxDistance Maximum edit distance, at most PlateIndex.MAX_DISTANCE
+     */
+    public List<Ticket> findParkedVehiclesLike(String plate, int maxDistance) {
+        List<Ticket> result = new ArrayList<>();
+        for (PlateIndex.Match match : plateIndex.findSimilar(plate, maxDistance)) {
+            addIfActive(result, match.getVehicleId());
+        }
+        return result;
+    }
+
+    private void addIfActive(List<Ticket> result, String vehicleId) {
+        Ticket ticket = tickets.get(vehicleId);
+        if (ticket != null && ticket.getUnparkedAt() == null) {
+            result.add(ticket);
+        }
+    }
+
     /**
      * Displays parking lot analytics including occupancy rates.
      */
@@ -202,7 +460,7 @@ public class ParkingLotService {
         for (int index = 0; index < floors.size(); index++) {
             Floor floor = floors.get(index);
             int floorSpots = floor.getTotalSpots();
-            int occupiedSpots = floorSpots - floor.getAvailableSpots().size();
+            int occupiedSpots = floor.getOccupiedSpotCount();
             System.out.println("Floor:" + index + " occupied: " + occupiedSpots + " of total: " + floorSpots);
             totalOccupancy += occupiedSpots;
             totalSpots += floorSpots;
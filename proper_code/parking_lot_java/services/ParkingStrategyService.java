@@ -9,7 +9,7 @@ import enums.SpotType;
 import enums.VehicleType;
 import interfaces.IParkingStrategy;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -54,7 +54,8 @@ public class ParkingStrategyService {
 
 /**
  * Strategy that provides nearest available parking spots.
- * Returns an iterator that lazily evaluates spots floor by floor.
+ * Returns an iterator that lazily evaluates spots floor by floor, checking each spot's availability
+ * only when it is reached, so a caller that stops after a few candidates does not pay for the floor.
  */
 class NearestParkingStrategy implements IParkingStrategy {
 
@@ -65,7 +66,7 @@ class NearestParkingStrategy implements IParkingStrategy {
         
         return new Iterator<Spot>() {
             private int floorIndex = 0;
-            private List<Spot> currentFloorSpots = new ArrayList<>();
+            private List<Spot> currentFloorSpots = Collections.emptyList();
             private int spotIndex = 0;
             private Spot nextSpot = null;
 
@@ -82,7 +83,7 @@ class NearestParkingStrategy implements IParkingStrategy {
                         if (floorIndex >= floors.size()) {
                             return false; // No more floors to check
                         }
-                        currentFloorSpots = floors.get(floorIndex).getAvailableSpots();
+                        currentFloorSpots = floors.get(floorIndex).getSpots();
                         floorIndex++;
                         spotIndex = 0;
                         // If current floor has no spots, continue to next floor
@@ -95,7 +96,7 @@ class NearestParkingStrategy implements IParkingStrategy {
                     Spot candidate = currentFloorSpots.get(spotIndex);
                     spotIndex++;
                     
-                    if (allowedSpotTypes.contains(candidate.getSpotType())) {
+                    if (allowedSpotTypes.contains(candidate.getSpotType()) && candidate.isAvailable()) {
                         nextSpot = candidate;
                         return true;
                     }
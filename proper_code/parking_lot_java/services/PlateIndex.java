@@ -0,0 +1,452 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index of active vehicle ids for exit cameras that misread plates.
+ * Supports exact, prefix and edit-distance (up to MAX_DISTANCE) lookups and is updated on park/unpark.
+ *
+ * Fuzzy lookups use the pigeonhole principle: every id is split into SEGMENTS = MAX_DISTANCE + 2
+ * segments, so an id within MAX_DISTANCE edits of the query keeps at least two segments unchanged,
+ * each shifted by at most MAX_DISTANCE characters. The id is indexed under every pair of its
+ * segments; a lookup probes the query's pairs at the reachable shifts, collects the candidates into
+ * one set so an id found through several pairs is verified once, and then verifies them with a
+ * bounded Levenshtein check. Pairs rather than single segments keep posting lists short even when
+ * many plates share a region prefix such as "KA01".
+ *
+ * Candidates are filtered inside the posting, from data stored next to each id, so that most of
+ * them are rejected without touching the id String: first by character-set signature, then (for ids
+ * of up to PACKED_CHARS characters) by the edit distance between the folded characters.
+ */
+public class PlateIndex {
+
+    public static final int MAX_DISTANCE = 2;
+    private static final int SEGMENTS = MAX_DISTANCE + 2;
+    /** Ids up to this long are also stored as their folded characters, 6 bits each, plus the length. */
+    private static final int PACKED_CHARS = 10;
+    private static final long NOT_PACKED = -1L;
+
+    private final ConcurrentSkipListSet<String> sortedIds = new ConcurrentSkipListSet<>();
+    private final Map<String, Posting> idsBySegment = new ConcurrentHashMap<>();
+
+    /**
+     * A fuzzy match and its edit distance from the query.
+     */
+    public static class Match {
+        private final String vehicleId;
+        private final int distance;
+
+        Match(String vehicleId, int distance) {
+            this.vehicleId = vehicleId;
+            this.distance = distance;
+        }
+
+        public String getVehicleId() {
+            return vehicleId;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * One findSimilar call: the query, its filters, and the candidates collected so far.
+     */
+    private static final class Lookup {
+        final String query;
+        final int maxDistance;
+        final long signature;
+        /** Per folded character, the query positions holding it; null if the query is too long. */
+        final long[] positionMasks;
+        final CandidateSet candidates = new CandidateSet();
+
+        Lookup(String query, int maxDistance) {
+            this.query = query;
+            this.maxDistance = maxDistance;
+            this.signature = signature(query);
+            if (query.isEmpty() || query.length() >= Long.SIZE) {
+                this.positionMasks = null;
+            } else {
+                this.positionMasks = new long[64];
+                for (int i = 0; i < query.length(); i++) {
+                    positionMasks[query.charAt(i) & 63] |= 1L << i;
+                }
+            }
+        }
+
+        /**
+         * False if the packed id is certainly more than maxDistance edits from the query. Folding can
+         * only make characters equal, so the folded distance never exceeds the real one.
+         */
+        boolean mayMatch(long packed) {
+            if (packed == NOT_PACKED || positionMasks == null) {
+                return true;
+            }
+            return foldedDistance(packed) <= maxDistance;
+        }
+
+        /**
+         * Edit distance between the query and the packed id, both folded, with Myers' bit-parallel
+         * algorithm: one pass over the id's characters, one word of state per column. Stops early,
+         * returning a value above maxDistance, once the rest of the id cannot bring it back down.
+         */
+        private int foldedDistance(long packed) {
+            int length = (int) (packed >>> 60);
+            long last = 1L << (query.length() - 1);
+            long plus = -1L;
+            long minus = 0L;
+            int distance = query.length();
+            for (int i = 0; i < length; i++) {
+                long equal = positionMasks[(int) (packed >>> (6 * i)) & 63];
+                long vertical = equal | minus;
+                long horizontal = (((equal & plus) + plus) ^ plus) | equal;
+                long horizontalPlus = minus | ~(horizontal | plus);
+                long horizontalMinus = plus & horizontal;
+                if ((horizontalPlus & last) != 0) {
+                    distance++;
+                } else if ((horizontalMinus & last) != 0) {
+                    distance--;
+                }
+                horizontalPlus = (horizontalPlus << 1) | 1;
+                horizontalMinus <<= 1;
+                plus = horizontalMinus | ~(vertical | horizontalPlus);
+                minus = horizontalPlus & vertical;
+                // Each remaining id character lowers the distance by at most one
+                if (distance - (length - 1 - i) > maxDistance) {
+                    return distance;
+                }
+            }
+            return distance;
+        }
+    }
+
+    /**
+     * Candidate ids of one lookup, in an open-addressing table. Every posting holds the same String
+     * for an id, so a repeat is almost always caught by the identity check on its cached hash.
+     */
+    private static final class CandidateSet {
+        private String[] slots = new String[64];
+        private int size;
+
+        void add(String id) {
+            int mask = slots.length - 1;
+            int slot = spread(id.hashCode()) & mask;
+            for (String existing = slots[slot]; existing != null; existing = slots[slot]) {
+                if (existing == id || existing.equals(id)) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+            if (++size * 2 > slots.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            String[] old = slots;
+            slots = new String[old.length * 2];
+            int mask = slots.length - 1;
+            for (String id : old) {
+                if (id != null) {
+                    int slot = spread(id.hashCode()) & mask;
+                    while (slots[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = id;
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Growable posting list: appends fill spare capacity (growing by half when full) and removals swap
+     * the last id into the freed slot, so an update never copies the list. Most keys hold one or two
+     * ids, so arrays beat a set per key. Each id carries its character-set signature and packed
+     * characters, so most candidates are rejected without reading the id.
+     *
+     * Writers mutate a posting only inside ConcurrentHashMap.compute for its key; readers add the
+     * candidates they need to their Lookup while holding the posting's monitor, which writers also take.
+     */
+    private static final class Posting {
+        private String[] ids = new String[1];
+        private long[] signatures = new long[1];
+        private long[] packed = new long[1];
+        private int size;
+
+        synchronized void add(String vehicleId, long signature, long packedId) {
+            if (size == ids.length) {
+                int capacity = size + (size >> 1) + 1;
+                ids = Arrays.copyOf(ids, capacity);
+                signatures = Arrays.copyOf(signatures, capacity);
+                packed = Arrays.copyOf(packed, capacity);
+            }
+            ids[size] = vehicleId;
+            signatures[size] = signature;
+            packed[size] = packedId;
+            size++;
+        }
+
+        /**
+         * @return true if the posting is empty afterwards
+         */
+        synchronized boolean remove(String vehicleId, long signature) {
+            for (int i = 0; i < size; i++) {
+                if (signatures[i] == signature && ids[i].equals(vehicleId)) {
+                    size--;
+                    ids[i] = ids[size];
+                    signatures[i] = signatures[size];
+                    packed[i] = packed[size];
+                    ids[size] = null;
+                    break;
+                }
+            }
+            return size == 0;
+        }
+
+        /**
+         * Adds the ids that pass the lookup's signature and packed-character filters.
+         */
+        synchronized void collect(Lookup lookup) {
+            // Each edit flips at most two bits of the character-set signature
+            int maxBits = 2 * lookup.maxDistance;
+            long querySignature = lookup.signature;
+            for (int i = 0; i < size; i++) {
+                if (Long.bitCount(signatures[i] ^ querySignature) <= maxBits && lookup.mayMatch(packed[i])) {
+                    lookup.candidates.add(ids[i]);
+                }
+            }
+        }
+    }
+
+    public void add(String vehicleId) {
+        if (!sortedIds.add(vehicleId)) {
+            return;
+        }
+        long signature = signature(vehicleId);
+        long packedId = pack(vehicleId);
+        for (String key : segmentKeys(vehicleId)) {
+            idsBySegment.compute(key, (k, posting) -> {
+                Posting updated = posting == null ? new Posting() : posting;
+                updated.add(vehicleId, signature, packedId);
+                return updated;
+            });
+        }
+    }
+
+    public void remove(String vehicleId) {
+        if (!sortedIds.remove(vehicleId)) {
+            return;
+        }
+        long signature = signature(vehicleId);
+        for (String key : segmentKeys(vehicleId)) {
+            idsBySegment.computeIfPresent(key, (k, posting) -> posting.remove(vehicleId, signature) ? null : posting);
+        }
+    }
+
+    public boolean contains(String vehicleId) {
+        return sortedIds.contains(vehicleId);
+    }
+
+    /**
+     * Active vehicle ids starting with the prefix, in lexicographic order.
+     */
+    public List<String> findByPrefix(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        for (String id : sortedIds.tailSet(prefix)) {
+            if (!id.startsWith(prefix) || result.size() >= limit) {
+                break;
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Active vehicle ids within maxDistance edits (insert, delete, substitute) of the query,
+     * closest first.
+     *
+     * @throws IllegalArgumentException if maxDistance is outside [0, MAX_DISTANCE]
+     */
+    public List<Match> findSimilar(String query, int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and " + MAX_DISTANCE);
+        }
+
+        Lookup lookup = new Lookup(query, maxDistance);
+        int queryLength = query.length();
+        for (int length = Math.max(1, queryLength - maxDistance); length <= queryLength + maxDistance; length++) {
+            if (length < SEGMENTS) {
+                // Too short to split; the short-id bucket is small, so check it directly
+                probe(key(length, -1, -1, ""), lookup);
+                continue;
+            }
+            for (int first = 0; first < SEGMENTS; first++) {
+                for (int second = first + 1; second < SEGMENTS; second++) {
+                    probePair(lookup, length, first, second);
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        int[][] rows = new int[2][queryLength + maxDistance + 1];
+        for (String id : lookup.candidates.slots) {
+            if (id == null || Math.abs(id.length() - queryLength) > maxDistance) {
+                continue;
+            }
+            int distance = boundedDistance(query, id, maxDistance, rows);
+            if (distance <= maxDistance) {
+                matches.add(new Match(id, distance));
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::getDistance).thenComparing(Match::getVehicleId));
+        return matches;
+    }
+
+    /**
+     * Probes one segment pair at every shift reachable with maxDistance edits. Only inserts and
+     * deletes shift text, so moving from no shift at the start, to the first segment's shift, to the
+     * second's, to the length difference at the end must take no more than maxDistance of them.
+     */
+    private void probePair(Lookup lookup, int length, int first, int second) {
+        String query = lookup.query;
+        int maxDistance = lookup.maxDistance;
+        int firstStart = segmentStart(length, first);
+        int firstLength = segmentStart(length, first + 1) - firstStart;
+        int secondStart = segmentStart(length, second);
+        int secondLength = segmentStart(length, second + 1) - secondStart;
+        int endShift = query.length() - length;
+        for (int firstShift = -maxDistance; firstShift <= maxDistance; firstShift++) {
+            int firstFrom = firstStart + firstShift;
+            if (firstFrom < 0 || firstFrom + firstLength > query.length()) {
+                continue;
+            }
+            int slack = maxDistance - Math.abs(firstShift);
+            for (int secondShift = firstShift - slack; secondShift <= firstShift + slack; secondShift++) {
+                int secondFrom = secondStart + secondShift;
+                if (secondFrom < firstFrom + firstLength || secondFrom + secondLength > query.length()
+                        || Math.abs(secondShift - firstShift) + Math.abs(endShift - secondShift) > slack) {
+                    continue;
+                }
+                String text = query.substring(firstFrom, firstFrom + firstLength)
+                        + query.substring(secondFrom, secondFrom + secondLength);
+                probe(key(length, first, second, text), lookup);
+            }
+        }
+    }
+
+    private void probe(String key, Lookup lookup) {
+        Posting posting = idsBySegment.get(key);
+        if (posting != null) {
+            posting.collect(lookup);
+        }
+    }
+
+    /**
+     * Set of characters in the id, folded into 64 bits (digits and letters map to distinct bits).
+     */
+    private static long signature(String id) {
+        long signature = 0L;
+        for (int i = 0; i < id.length(); i++) {
+            signature |= 1L << (id.charAt(i) & 63);
+        }
+        return signature;
+    }
+
+    /**
+     * The id's folded characters (as in signature), 6 bits each, with the length in the top 4 bits;
+     * NOT_PACKED if the id is longer than PACKED_CHARS.
+     */
+    private static long pack(String id) {
+        int length = id.length();
+        if (length > PACKED_CHARS) {
+            return NOT_PACKED;
+        }
+        long packed = (long) length << 60;
+        for (int i = 0; i < length; i++) {
+            packed |= (long) (id.charAt(i) & 63) << (6 * i);
+        }
+        return packed;
+    }
+
+    private static List<String> segmentKeys(String vehicleId) {
+        int length = vehicleId.length();
+        List<String> keys = new ArrayList<>();
+        if (length < SEGMENTS) {
+            keys.add(key(length, -1, -1, ""));
+            return keys;
+        }
+        for (int first = 0; first < SEGMENTS; first++) {
+            String firstText = vehicleId.substring(segmentStart(length, first), segmentStart(length, first + 1));
+            for (int second = first + 1; second < SEGMENTS; second++) {
+                String secondText = vehicleId.substring(segmentStart(length, second), segmentStart(length, second + 1));
+                keys.add(key(length, first, second, firstText + secondText));
+            }
+        }
+        return keys;
+    }
+
+    private static int segmentStart(int length, int segment) {
+        return segment * length / SEGMENTS;
+    }
+
+    private static String key(int length, int first, int second, String text) {
+        return length + ":" + first + ":" + second + ":" + text;
+    }
+
+    /**
+     * Levenshtein distance restricted to a diagonal band of width maxDistance.
+     * The two DP rows are supplied by the caller and must hold at least b.length() + 1 entries.
+     *
+     * @return the distance, or maxDistance + 1 if it exceeds maxDistance
+     */
+    static int boundedDistance(String a, String b, int maxDistance, int[][] rows) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int over = maxDistance + 1;
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= maxDistance ? j : over;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(m, i + maxDistance);
+            current[0] = i <= maxDistance ? i : over;
+            if (from > 1) {
+                current[from - 1] = over;
+            }
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j] + 1, current[j - 1] + 1));
+                current[j] = Math.min(value, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = over;
+            }
+            if (rowMin > maxDistance) {
+                return over;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+}
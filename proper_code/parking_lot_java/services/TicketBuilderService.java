@@ -1,6 +1,7 @@
 package services;
 
 import entities.Ticket;
+import enums.VehicleType;
 
 import java.util.Date;
 
@@ -13,6 +14,7 @@ public class TicketBuilderService {
     private String ticketId;
     private String spotId;
     private String vehicleId;
+    private VehicleType vehicleType;
     private Date parkedAt;
     private String entryGateId;
 
@@ -34,6 +36,11 @@ public class TicketBuilderService {
         return this;
     }
 
+    public TicketBuilderService setVehicleType(VehicleType vehicleType) {
+        this.vehicleType = vehicleType;
+        return this;
+    }
+
     public TicketBuilderService setParkedAt(Date parkedAt) {
         this.parkedAt = parkedAt;
         return this;
@@ -45,9 +52,9 @@ public class TicketBuilderService {
     }
 
     public Ticket build() {
-        if (ticketId == null || spotId == null || vehicleId == null || parkedAt == null || entryGateId == null) {
+        if (ticketId == null || spotId == null || vehicleId == null || vehicleType == null || parkedAt == null || entryGateId == null) {
             throw new IllegalStateException("Missing fields to build Ticket");
         }
-        return new Ticket(ticketId, spotId, entryGateId, parkedAt, vehicleId);
+        return new Ticket(ticketId, spotId, entryGateId, parkedAt, vehicleId, vehicleType);
     }
 }
@@ -0,0 +1,52 @@
+package services;
+
+import entities.Ticket;
+
+/**
+ * Sort key for time-ordered ticket indexes: a timestamp, with the ticket id as tie-breaker
+ * so that tickets sharing a millisecond do not overwrite each other.
+ */
+final class TicketTimeKey implements Comparable<TicketTimeKey> {
+    private final long time;
+    private final String ticketId;
+
+    TicketTimeKey(long time, String ticketId) {
+        this.time = time;
+        this.ticketId = ticketId;
+    }
+
+    TicketTimeKey(long time, Ticket ticket) {
+        this(time, ticket.getTicketId());
+    }
+
+    /**
+     * Key that sorts before every ticket at the given time, for exclusive range bounds.
+     */
+    static TicketTimeKey lowerBound(long time) {
+        return new TicketTimeKey(time, "");
+    }
+
+    long getTime() {
+        return time;
+    }
+
+    @Override
+    public int compareTo(TicketTimeKey other) {
+        int byTime = Long.compare(time, other.time);
+        return byTime != 0 ? byTime : ticketId.compareTo(other.ticketId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TicketTimeKey)) {
+            return false;
+        }
+        TicketTimeKey other = (TicketTimeKey) o;
+        return time == other.time && ticketId.equals(other.ticketId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(time) * 31 + ticketId.hashCode();
+    }
+}